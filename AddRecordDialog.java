@@ -128,8 +128,8 @@ public class AddRecordDialog extends JDialog {
     /** Handle Save/Add button click: validate inputs and notify listener. */
     private void onSave() {
         // Validate input fields using ValidationUtil
-        if (!ValidationUtil.isValidId(idField.getText(), 100)) {
-            JOptionPane.showMessageDialog(this, "Invalid Employee ID (must be a number between 1 and 100).");
+        if (!ValidationUtil.isValidId(idField.getText())) {
+            JOptionPane.showMessageDialog(this, "Invalid Employee ID (must be a positive whole number).");
             return;
         }
         if (!ValidationUtil.isValidPps(ppsField.getText())) {
@@ -154,7 +154,7 @@ public class AddRecordDialog extends JDialog {
         double salary = Double.parseDouble(salaryField.getText().trim());
         boolean fullTime = fullTimeCheck.isSelected();
 
-        Employee emp = new Employee(id, pps, firstName, surname, gender, department, salary, fullTime);
+        Employee emp = new Employee(id, pps, surname, firstName, gender, department, salary, fullTime);
         if (editMode) {
             listener.onEditEmployee(emp);
         } else {
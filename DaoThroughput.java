@@ -0,0 +1,118 @@
+/*
+ *
+ * This is a throughput harness for concurrent use of EmployeeDAO
+ *
+ * */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fills a scratch file with employees, then runs a mix of random reads and updates against one
+ * DAO with 1, 2, 4, ... threads and prints the operations per second at each step, so the
+ * scaling of the DAO's locking can be seen as the thread count grows.
+ */
+public class DaoThroughput {
+    private static final String[] DEPARTMENTS = {"Administration", "Production", "Transport", "Management"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 5) {
+            System.err.println("Usage: java DaoThroughput <scratch file, overwritten> [records] [seconds per step]"
+                    + " [max threads] [write percent]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        int records = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int maxThreads = args.length > 3 ? Integer.parseInt(args[3]) : 2 * Runtime.getRuntime().availableProcessors();
+        int writePercent = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        deleteWithSideFiles(file);
+        EmployeeDAO dao = new EmployeeDAO(file.toString(), true);
+        try {
+            List<Employee> employees = new ArrayList<>(records);
+            for (int i = 1; i <= records; i++) {
+                employees.add(employee(i, 30_000));
+            }
+            System.out.println("Loaded " + dao.addEmployees(employees));
+
+            System.out.printf("%-8s %14s %14s %14s %8s%n", "threads", "ops/s", "reads/s", "writes/s", "scaling");
+            double single = 0;
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double[] rates = run(dao, records, threads, seconds, writePercent);
+                if (threads == 1) {
+                    single = rates[0];
+                }
+                System.out.printf("%-8d %14.0f %14.0f %14.0f %7.2fx%n", threads, rates[0], rates[1], rates[2],
+                        rates[0] / single);
+            }
+            System.out.println("Record cache: " + dao.getRecordCache());
+        } finally {
+            dao.close();
+            deleteWithSideFiles(file);
+        }
+    }
+
+    // Run the mix on the given number of threads; returns total, read and write operations per second
+    private static double[] run(EmployeeDAO dao, int records, int threads, int seconds, int writePercent)
+            throws InterruptedException {
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] window = new long[2];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < window[1]) {
+                    int index = random.nextInt(records);
+                    long position = EmployeeFileFormat.FIRST_RECORD + (long) index * EmployeeRecordCodec.SIZE;
+                    if (random.nextInt(100) < writePercent) {
+                        dao.updateEmployee(employee(index + 1, 30_000 + random.nextInt(50_000)), position);
+                        writes.increment();
+                    } else {
+                        dao.readEmployee(position);
+                        reads.increment();
+                    }
+                }
+            }, "throughput-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        window[0] = System.nanoTime();
+        window[1] = window[0] + seconds * 1_000_000_000L;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - window[0]) / 1e9;
+        double readRate = reads.sum() / elapsed;
+        double writeRate = writes.sum() / elapsed;
+        return new double[] {readRate + writeRate, readRate, writeRate};
+    }
+
+    private static Employee employee(int id, double salary) {
+        return new Employee(id, "PPS" + id, "Surname" + (id % 5000), "First" + id, id % 2 == 0 ? 'M' : 'F',
+                DEPARTMENTS[id % DEPARTMENTS.length], salary, id % 3 != 0);
+    }
+
+    // Delete the scratch file with the PPS index, free list and log kept next to it
+    private static void deleteWithSideFiles(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        for (String suffix : new String[] {".pps", ".free", ".wal"}) {
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + suffix));
+        }
+    }
+}
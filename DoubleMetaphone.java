@@ -0,0 +1,494 @@
+/*
+ *
+ * This is the Double Metaphone phonetic encoding of names
+ *
+ * */
+
+/**
+ * Lawrence Philips' Double Metaphone: a name is reduced to a primary and an alternate code of
+ * up to four characters describing how it sounds, so that spellings such as Smith and Smyth,
+ * or Kavanagh and Cavanagh, share a code. The alternate code differs from the primary only
+ * where a spelling has two plausible pronunciations (e.g. Germanic or Slavic ones).
+ *
+ * encode() expects upper-case A-Z letters only (see FuzzySurnameIndex.fold); other characters
+ * are skipped. '0' in a code stands for the "th" sound.
+ */
+public class DoubleMetaphone {
+    private static final int MAX_LENGTH = 4;
+
+    private final String value;
+    private final boolean slavoGermanic;
+    private final StringBuilder primary = new StringBuilder(MAX_LENGTH);
+    private final StringBuilder alternate = new StringBuilder(MAX_LENGTH);
+
+    private DoubleMetaphone(String value) {
+        this.value = value;
+        this.slavoGermanic = value.indexOf('W') >= 0 || value.indexOf('K') >= 0
+                || value.contains("CZ") || value.contains("WITZ");
+    }
+
+    /** Primary and alternate code of an upper-case name; the two are equal for most names. */
+    public static String[] encode(String name) {
+        DoubleMetaphone encoder = new DoubleMetaphone(name);
+        encoder.run();
+        return new String[] { encoder.primary.toString(), encoder.alternate.toString() };
+    }
+
+    private void run() {
+        int index = contains(0, 2, "GN", "KN", "PN", "WR", "PS") ? 1 : 0;  // silent first letter
+        if (charAt(0) == 'X') {
+            add("S");  // Xavier
+            index = 1;
+        }
+        while (index < value.length() && (primary.length() < MAX_LENGTH || alternate.length() < MAX_LENGTH)) {
+            switch (value.charAt(index)) {
+                case 'A': case 'E': case 'I': case 'O': case 'U': case 'Y':
+                    if (index == 0) {
+                        add("A");  // only a leading vowel is coded
+                    }
+                    index++;
+                    break;
+                case 'B':
+                    add("P");
+                    index = charAt(index + 1) == 'B' ? index + 2 : index + 1;
+                    break;
+                case 'C':
+                    index = handleC(index);
+                    break;
+                case 'D':
+                    index = handleD(index);
+                    break;
+                case 'F':
+                    add("F");
+                    index = charAt(index + 1) == 'F' ? index + 2 : index + 1;
+                    break;
+                case 'G':
+                    index = handleG(index);
+                    break;
+                case 'H':
+                    if ((index == 0 || isVowel(charAt(index - 1))) && isVowel(charAt(index + 1))) {
+                        add("H");  // only between vowels or before one at the start
+                        index += 2;
+                    } else {
+                        index++;
+                    }
+                    break;
+                case 'J':
+                    index = handleJ(index);
+                    break;
+                case 'K':
+                    add("K");
+                    index = charAt(index + 1) == 'K' ? index + 2 : index + 1;
+                    break;
+                case 'L':
+                    index = handleL(index);
+                    break;
+                case 'M':
+                    add("M");
+                    index = isDoubleM(index) ? index + 2 : index + 1;
+                    break;
+                case 'N':
+                    add("N");
+                    index = charAt(index + 1) == 'N' ? index + 2 : index + 1;
+                    break;
+                case 'P':
+                    if (charAt(index + 1) == 'H') {
+                        add("F");
+                        index += 2;
+                    } else {
+                        add("P");
+                        index = contains(index + 1, 1, "P", "B") ? index + 2 : index + 1;
+                    }
+                    break;
+                case 'Q':
+                    add("K");
+                    index = charAt(index + 1) == 'Q' ? index + 2 : index + 1;
+                    break;
+                case 'R':
+                    index = handleR(index);
+                    break;
+                case 'S':
+                    index = handleS(index);
+                    break;
+                case 'T':
+                    index = handleT(index);
+                    break;
+                case 'V':
+                    add("F");
+                    index = charAt(index + 1) == 'V' ? index + 2 : index + 1;
+                    break;
+                case 'W':
+                    index = handleW(index);
+                    break;
+                case 'X':
+                    index = handleX(index);
+                    break;
+                case 'Z':
+                    index = handleZ(index);
+                    break;
+                default:
+                    index++;
+            }
+        }
+    }
+
+    private int handleC(int index) {
+        if (isGermanicCh(index)) {
+            add("K");  // Bacher, Macher
+            return index + 2;
+        } else if (index == 0 && contains(index, 6, "CAESAR")) {
+            add("S");
+            return index + 2;
+        } else if (contains(index, 2, "CH")) {
+            return handleCH(index);
+        } else if (contains(index, 2, "CZ") && !contains(index - 2, 4, "WICZ")) {
+            add("S", "X");
+            return index + 2;
+        } else if (contains(index + 1, 3, "CIA")) {
+            add("X");
+            return index + 3;
+        } else if (contains(index, 2, "CC") && !(index == 1 && charAt(0) == 'M')) {
+            if (contains(index + 2, 1, "I", "E", "H") && !contains(index + 2, 2, "HU")) {
+                if ((index == 1 && charAt(0) == 'A') || contains(index - 1, 5, "UCCEE", "UCCES")) {
+                    add("KS");  // Accident, Succeed
+                } else {
+                    add("X");  // Bacci, Bertucci
+                }
+                return index + 3;
+            }
+            add("K");
+            return index + 2;
+        } else if (contains(index, 2, "CK", "CG", "CQ")) {
+            add("K");
+            return index + 2;
+        } else if (contains(index, 2, "CI", "CE", "CY")) {
+            if (contains(index, 3, "CIO", "CIE", "CIA")) {
+                add("S", "X");
+            } else {
+                add("S");
+            }
+            return index + 2;
+        }
+        add("K");
+        if (contains(index + 1, 1, "C", "K", "Q") && !contains(index + 1, 2, "CE", "CI")) {
+            return index + 2;
+        }
+        return index + 1;
+    }
+
+    private boolean isGermanicCh(int index) {
+        if (contains(index, 4, "CHIA")) {
+            return true;
+        } else if (index <= 1 || isVowel(charAt(index - 2)) || !contains(index - 1, 3, "ACH")) {
+            return false;
+        }
+        char after = charAt(index + 2);
+        return (after != 'I' && after != 'E') || contains(index - 2, 6, "BACHER", "MACHER");
+    }
+
+    private int handleCH(int index) {
+        if (index > 0 && contains(index, 4, "CHAE")) {
+            add("K", "X");  // Michael
+        } else if (index == 0 && !contains(0, 5, "CHORE")
+                && (contains(index + 1, 5, "HARAC", "HARIS") || contains(index + 1, 3, "HOR", "HYM", "HIA", "HEM"))) {
+            add("K");  // Greek roots: Chorus, Chemistry
+        } else if (contains(0, 3, "SCH") || contains(index - 2, 6, "ORCHES", "ARCHIT", "ORCHID")
+                || contains(index + 2, 1, "T", "S")
+                || ((index == 0 || contains(index - 1, 1, "A", "O", "U", "E"))
+                    && (contains(index + 2, 1, "L", "R", "N", "M", "B", "H", "F", "V", "W") || index + 1 == value.length() - 1))) {
+            add("K");  // Germanic: Bach, Schmidt
+        } else if (index > 0) {
+            if (contains(0, 2, "MC")) {
+                add("K");  // McHugh
+            } else {
+                add("X", "K");
+            }
+        } else {
+            add("X");
+        }
+        return index + 2;
+    }
+
+    private int handleD(int index) {
+        if (contains(index, 2, "DG")) {
+            if (contains(index + 2, 1, "I", "E", "Y")) {
+                add("J");  // Edge
+                return index + 3;
+            }
+            add("TK");  // Edgar
+            return index + 2;
+        } else if (contains(index, 2, "DT", "DD")) {
+            add("T");
+            return index + 2;
+        }
+        add("T");
+        return index + 1;
+    }
+
+    private int handleG(int index) {
+        char next = charAt(index + 1);
+        if (next == 'H') {
+            return handleGH(index);
+        } else if (next == 'N') {
+            if (index == 1 && isVowel(charAt(0)) && !slavoGermanic) {
+                add("KN", "N");
+            } else if (!contains(index + 2, 2, "EY") && !slavoGermanic) {
+                add("N", "KN");
+            } else {
+                add("KN");
+            }
+            return index + 2;
+        } else if (contains(index + 1, 2, "LI") && !slavoGermanic) {
+            add("KL", "L");  // Tagliaro
+            return index + 2;
+        } else if (index == 0 && (next == 'Y'
+                || contains(index + 1, 2, "ES", "EP", "EB", "EL", "EY", "IB", "IL", "IN", "IE", "EI", "ER"))) {
+            add("K", "J");
+            return index + 2;
+        } else if ((contains(index + 1, 2, "ER") || next == 'Y') && !contains(0, 6, "DANGER", "RANGER", "MANGER")
+                && !contains(index - 1, 1, "E", "I") && !contains(index - 1, 3, "RGY", "OGY")) {
+            add("K", "J");
+            return index + 2;
+        } else if (contains(index + 1, 1, "E", "I", "Y") || contains(index - 1, 4, "AGGI", "OGGI")) {
+            if (contains(0, 3, "SCH") || contains(index + 1, 2, "ET")) {
+                add("K");
+            } else if (contains(index + 1, 3, "IER")) {
+                add("J");
+            } else {
+                add("J", "K");
+            }
+            return index + 2;
+        }
+        add("K");
+        return next == 'G' ? index + 2 : index + 1;
+    }
+
+    private int handleGH(int index) {
+        if (index > 0 && !isVowel(charAt(index - 1))) {
+            add("K");
+        } else if (index == 0) {
+            add(charAt(index + 2) == 'I' ? "J" : "K");  // Ghislane, Ghent
+        } else if ((index > 1 && contains(index - 2, 1, "B", "H", "D"))
+                || (index > 2 && contains(index - 3, 1, "B", "H", "D"))
+                || (index > 3 && contains(index - 4, 1, "B", "H"))) {
+            // silent: Hugh, Bough, Broughton
+        } else if (index > 2 && charAt(index - 1) == 'U' && contains(index - 3, 1, "C", "G", "L", "R", "T")) {
+            add("F");  // Laugh, Tough
+        } else if (charAt(index - 1) != 'I') {
+            add("K");
+        }
+        return index + 2;
+    }
+
+    private int handleJ(int index) {
+        if (contains(index, 4, "JOSE")) {
+            if (value.length() == 4) {
+                add("H");  // Spanish: Jose
+            } else {
+                add("J", "H");
+            }
+            return index + 1;
+        }
+        if (index == 0) {
+            add("J", "A");  // Jankelowicz
+        } else if (isVowel(charAt(index - 1)) && !slavoGermanic && (charAt(index + 1) == 'A' || charAt(index + 1) == 'O')) {
+            add("J", "H");
+        } else if (index == value.length() - 1) {
+            add("J", "");
+        } else if (!contains(index + 1, 1, "L", "T", "K", "S", "N", "M", "B", "Z") && !contains(index - 1, 1, "S", "K", "L")) {
+            add("J");
+        }
+        return charAt(index + 1) == 'J' ? index + 2 : index + 1;
+    }
+
+    private int handleL(int index) {
+        if (charAt(index + 1) == 'L') {
+            if (isSpanishLl(index)) {
+                add("L", "");  // Cabrillo, Gallegos
+            } else {
+                add("L");
+            }
+            return index + 2;
+        }
+        add("L");
+        return index + 1;
+    }
+
+    private boolean isSpanishLl(int index) {
+        int last = value.length() - 1;
+        if (index == value.length() - 3 && contains(index - 1, 4, "ILLO", "ILLA", "ALLE")) {
+            return true;
+        }
+        return (contains(last - 1, 2, "AS", "OS") || contains(last, 1, "A", "O")) && contains(index - 1, 4, "ALLE");
+    }
+
+    private boolean isDoubleM(int index) {
+        if (charAt(index + 1) == 'M') {
+            return true;
+        }
+        // Dumb, Thumb: the B is silent
+        return contains(index - 1, 3, "UMB") && (index + 1 == value.length() - 1 || contains(index + 2, 2, "ER"));
+    }
+
+    private int handleR(int index) {
+        if (index == value.length() - 1 && !slavoGermanic && contains(index - 2, 2, "IE")
+                && !contains(index - 4, 2, "ME", "MA")) {
+            add("", "R");  // French: Rogier
+        } else {
+            add("R");
+        }
+        return charAt(index + 1) == 'R' ? index + 2 : index + 1;
+    }
+
+    private int handleS(int index) {
+        if (contains(index - 1, 3, "ISL", "YSL")) {
+            return index + 1;  // Island, Carlisle
+        } else if (index == 0 && contains(index, 5, "SUGAR")) {
+            add("X", "S");
+            return index + 1;
+        } else if (contains(index, 2, "SH")) {
+            add(contains(index + 1, 4, "HEIM", "HOEK", "HOLM", "HOLZ") ? "S" : "X");
+            return index + 2;
+        } else if (contains(index, 3, "SIO", "SIA") || contains(index, 4, "SIAN")) {
+            if (slavoGermanic) {
+                add("S");
+            } else {
+                add("S", "X");
+            }
+            return index + 3;
+        } else if ((index == 0 && contains(index + 1, 1, "M", "N", "L", "W")) || contains(index + 1, 1, "Z")) {
+            add("S", "X");  // Smith and Schmidt, Snider and Schneider
+            return contains(index + 1, 1, "Z") ? index + 2 : index + 1;
+        } else if (contains(index, 2, "SC")) {
+            return handleSC(index);
+        }
+        if (index == value.length() - 1 && contains(index - 2, 2, "AI", "OI")) {
+            add("", "S");  // French: Artois
+        } else {
+            add("S");
+        }
+        return contains(index + 1, 1, "S", "Z") ? index + 2 : index + 1;
+    }
+
+    private int handleSC(int index) {
+        if (charAt(index + 2) == 'H') {
+            if (contains(index + 3, 2, "OO", "ER", "EN", "UY", "ED", "EM")) {
+                if (contains(index + 3, 2, "ER", "EN")) {
+                    add("X", "SK");  // Schenker
+                } else {
+                    add("SK");  // Schooner
+                }
+            } else if (index == 0 && !isVowel(charAt(3)) && charAt(3) != 'W') {
+                add("X", "S");
+            } else {
+                add("X");
+            }
+        } else if (contains(index + 2, 1, "I", "E", "Y")) {
+            add("S");
+        } else {
+            add("SK");
+        }
+        return index + 3;
+    }
+
+    private int handleT(int index) {
+        if (contains(index, 4, "TION") || contains(index, 3, "TIA", "TCH")) {
+            add("X");
+            return index + 3;
+        } else if (contains(index, 2, "TH") || contains(index, 3, "TTH")) {
+            if (contains(index + 2, 2, "OM", "AM") || contains(0, 3, "SCH")) {
+                add("T");  // Thomas, Thames
+            } else {
+                add("0", "T");
+            }
+            return index + 2;
+        }
+        add("T");
+        return contains(index + 1, 1, "T", "D") ? index + 2 : index + 1;
+    }
+
+    private int handleW(int index) {
+        if (contains(index, 2, "WR")) {
+            add("R");
+            return index + 2;
+        }
+        if (index == 0 && (isVowel(charAt(index + 1)) || contains(index, 2, "WH"))) {
+            if (isVowel(charAt(index + 1))) {
+                add("A", "F");  // Wasserman
+            } else {
+                add("A");  // Whitney
+            }
+        } else if ((index == value.length() - 1 && isVowel(charAt(index - 1)))
+                || contains(index - 1, 5, "EWSKI", "EWSKY", "OWSKI", "OWSKY") || contains(0, 3, "SCH")) {
+            add("", "F");  // Tsjaikowski
+        } else if (contains(index, 4, "WICZ", "WITZ")) {
+            add("TS", "FX");  // Polish: Filipowicz
+            return index + 4;
+        }
+        return index + 1;
+    }
+
+    private int handleX(int index) {
+        if (index == 0) {
+            add("S");
+            return index + 1;
+        }
+        boolean silent = index == value.length() - 1
+                && (contains(index - 3, 3, "IAU", "EAU") || contains(index - 2, 2, "AU", "OU"));  // Breaux
+        if (!silent) {
+            add("KS");
+        }
+        return contains(index + 1, 1, "C", "X") ? index + 2 : index + 1;
+    }
+
+    private int handleZ(int index) {
+        if (charAt(index + 1) == 'H') {
+            add("J");  // Chinese: Zhao
+            return index + 2;
+        }
+        if (contains(index + 1, 2, "ZO", "ZI", "ZA") || (slavoGermanic && index > 0 && charAt(index - 1) != 'T')) {
+            add("S", "TS");
+        } else {
+            add("S");
+        }
+        return charAt(index + 1) == 'Z' ? index + 2 : index + 1;
+    }
+
+    /** Utility: Add the same sound to both codes. */
+    private void add(String sound) {
+        add(sound, sound);
+    }
+
+    /** Utility: Add a sound to each code, each kept to MAX_LENGTH characters. */
+    private void add(String primarySound, String alternateSound) {
+        append(primary, primarySound);
+        append(alternate, alternateSound);
+    }
+
+    private static void append(StringBuilder code, String sound) {
+        int room = MAX_LENGTH - code.length();
+        code.append(sound, 0, Math.max(0, Math.min(room, sound.length())));
+    }
+
+    /** Utility: Character at the index, or 0 outside the value. */
+    private char charAt(int index) {
+        return index >= 0 && index < value.length() ? value.charAt(index) : 0;
+    }
+
+    /** Utility: True if the length characters from start are one of the candidates. */
+    private boolean contains(int start, int length, String... candidates) {
+        if (start < 0 || start + length > value.length()) {
+            return false;
+        }
+        for (String candidate : candidates) {
+            if (value.regionMatches(start, candidate, 0, length) && candidate.length() == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isVowel(char c) {
+        return c != 0 && "AEIOUY".indexOf(c) >= 0;
+    }
+}
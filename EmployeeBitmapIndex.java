@@ -0,0 +1,74 @@
+/*
+ *
+ * This is a set of bitmap indexes on the low-cardinality employee fields
+ *
+ * */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * One SlotBitmap per gender, per full/part-time status and per department, holding the slots
+ * of the employees with that value. Filters on these fields and headcounts become and(), or()
+ * and cardinality() on a handful of bitmaps instead of a look at every employee.
+ *
+ * Departments are compared trimmed and ignoring case, as genders are. The owner calls add()
+ * and remove() as employees come and go and guards the index with its own lock; the bitmaps
+ * returned are the live ones, so they must be read under that lock and never modified.
+ */
+public class EmployeeBitmapIndex {
+    private static final SlotBitmap EMPTY = new SlotBitmap();
+
+    private final Map<Character, SlotBitmap> byGender = new HashMap<>();
+    private final SlotBitmap fullTime = new SlotBitmap();
+    private final SlotBitmap partTime = new SlotBitmap();
+    private final Map<String, SlotBitmap> byDepartment = new HashMap<>();
+
+    /** Normalize a department the way it is indexed and compared: trimmed and upper case. */
+    public static String normalize(String department) {
+        return department == null ? "" : department.trim().toUpperCase();
+    }
+
+    /** Index the employee stored at the given slot. */
+    public void add(Employee emp, int slot) {
+        byGender.computeIfAbsent(Character.toUpperCase(emp.getGender()), g -> new SlotBitmap()).add(slot);
+        (emp.getFullTime() ? fullTime : partTime).add(slot);
+        byDepartment.computeIfAbsent(normalize(emp.getDepartment()), d -> new SlotBitmap()).add(slot);
+    }
+
+    /** Remove the employee that was stored at the given slot. */
+    public void remove(Employee emp, int slot) {
+        remove(byGender, Character.toUpperCase(emp.getGender()), slot);
+        (emp.getFullTime() ? fullTime : partTime).remove(slot);
+        remove(byDepartment, normalize(emp.getDepartment()), slot);
+    }
+
+    /** Slots of the employees of the given gender. */
+    public SlotBitmap gender(char gender) {
+        return byGender.getOrDefault(Character.toUpperCase(gender), EMPTY);
+    }
+
+    /** Slots of the full-time employees when true, the part-time ones when false. */
+    public SlotBitmap fullTime(boolean isFullTime) {
+        return isFullTime ? fullTime : partTime;
+    }
+
+    /** Slots of the employees in the given department. */
+    public SlotBitmap department(String department) {
+        return byDepartment.getOrDefault(normalize(department), EMPTY);
+    }
+
+    /** Normalized names of the departments that have employees, in order. */
+    public TreeSet<String> departments() {
+        return new TreeSet<>(byDepartment.keySet());
+    }
+
+    /** Utility: Remove a slot from a value's bitmap, dropping the bitmap once it is empty. */
+    private static <K> void remove(Map<K, SlotBitmap> bitmaps, K value, int slot) {
+        SlotBitmap bitmap = bitmaps.get(value);
+        if (bitmap != null && bitmap.remove(slot) && bitmap.isEmpty()) {
+            bitmaps.remove(value);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *
+ * This is a typed change event for one employee
+ *
+ * */
+
+/**
+ * What happened to one employee ID: it was added, edited or deleted. Events are immutable
+ * and delivered in batches by EmployeeEventBus.
+ */
+public final class EmployeeChange {
+    public enum Type { ADDED, EDITED, DELETED }
+
+    private final Type type;
+    private final int employeeId;
+
+    public EmployeeChange(Type type, int employeeId) {
+        this.type = type;
+        this.employeeId = employeeId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    /** The single change equal to this one followed by next for the same ID, or null if they cancel out. */
+    public EmployeeChange then(EmployeeChange next) {
+        if (type == Type.ADDED) {
+            // Added then edited is still an add; added then deleted never happened
+            return next.type == Type.DELETED ? null : this;
+        }
+        if (type == Type.DELETED && next.type == Type.ADDED) {
+            return new EmployeeChange(Type.EDITED, employeeId);  // the ID is back with new details
+        }
+        return next;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof EmployeeChange)) {
+            return false;
+        }
+        EmployeeChange change = (EmployeeChange) other;
+        return type == change.type && employeeId == change.employeeId;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + employeeId;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + employeeId;
+    }
+}
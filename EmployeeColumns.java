@@ -0,0 +1,242 @@
+/*
+ *
+ * This is a columnar in-memory snapshot of the employee file for reports
+ *
+ * */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live records held column by column: IDs and salaries in primitive arrays, gender and
+ * full-time status as bitsets, and departments dictionary-encoded as an index into a list of
+ * distinct names. Row i of every column belongs to the same employee; rows are in file order.
+ * Reports run over the arrays without creating an Employee or a String per record.
+ *
+ * The snapshot is immutable and does not follow later changes to the file.
+ */
+public class EmployeeColumns {
+    private static final int BATCH = 4096;  // records read per call while loading
+    private static final int IN_PLACE_DEPARTMENTS = 16;  // beyond this, departments are matched by a map lookup
+
+    private final int size;
+    private final int[] ids;
+    private final long[] positions;  // record position in the file
+    private final double[] salaries;
+    private final BitSet male;
+    private final BitSet fullTime;
+    private final int[] departmentCodes;
+    private final List<String> departments;
+
+    private EmployeeColumns(int size, int[] ids, long[] positions, double[] salaries, BitSet male,
+            BitSet fullTime, int[] departmentCodes, List<String> departments) {
+        this.size = size;
+        this.ids = ids;
+        this.positions = positions;
+        this.salaries = salaries;
+        this.male = male;
+        this.fullTime = fullTime;
+        this.departmentCodes = departmentCodes;
+        this.departments = departments;
+    }
+
+    /** Build a snapshot of the live records with one batched scan of the employee file. */
+    public static EmployeeColumns load(FileChannel data) throws IOException {
+        int capacity = (int) Math.max(0, (data.size() - EmployeeFileFormat.FIRST_RECORD) / EmployeeRecordCodec.SIZE);
+        int[] ids = new int[capacity];
+        long[] positions = new long[capacity];
+        double[] salaries = new double[capacity];
+        BitSet male = new BitSet(capacity);
+        BitSet fullTime = new BitSet(capacity);
+        int[] departmentCodes = new int[capacity];
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> departments = new ArrayList<>();
+
+        // Fields are read in place; a String is only made for a department not seen before
+        EmployeeRecordCodec codec = new EmployeeRecordCodec(BATCH);
+        RecordCursor cursor = new RecordCursor();
+        long currentByte = EmployeeFileFormat.FIRST_RECORD;
+        int row = 0;
+        int lastCode = -1;
+        for (int scanned = 0; scanned < capacity; ) {
+            ByteBuffer block = codec.readBatch(data, currentByte, Math.min(BATCH, capacity - scanned));
+            if (!block.hasRemaining()) {
+                break;
+            }
+            for (int at = 0; at < block.limit(); at += EmployeeRecordCodec.SIZE) {
+                cursor.at(block, at);
+                if (cursor.id() > 0) {
+                    ids[row] = cursor.id();
+                    positions[row] = currentByte;
+                    salaries[row] = cursor.salary();
+                    male.set(row, cursor.gender() == 'M');
+                    fullTime.set(row, cursor.fullTime());
+                    lastCode = departmentCode(cursor, departments, dictionary, lastCode);
+                    departmentCodes[row] = lastCode;
+                    row++;
+                }
+                currentByte += EmployeeRecordCodec.SIZE;
+                scanned++;
+            }
+        }
+        return new EmployeeColumns(row, Arrays.copyOf(ids, row), Arrays.copyOf(positions, row),
+                Arrays.copyOf(salaries, row), male, fullTime, Arrays.copyOf(departmentCodes, row),
+                Collections.unmodifiableList(departments));
+    }
+
+    // Code of the cursor's department: the previous record's when it matches, then compared in place
+    // while there are few departments, else looked up by name
+    private static int departmentCode(RecordCursor cursor, List<String> departments, Map<String, Integer> dictionary,
+            int lastCode) {
+        if (lastCode >= 0 && cursor.departmentEquals(departments.get(lastCode))) {
+            return lastCode;
+        }
+        if (departments.size() <= IN_PLACE_DEPARTMENTS) {
+            for (int code = 0; code < departments.size(); code++) {
+                if (cursor.departmentEquals(departments.get(code))) {
+                    return code;
+                }
+            }
+        }
+        return dictionary.computeIfAbsent(cursor.department(), name -> {
+            departments.add(name);
+            return departments.size() - 1;
+        });
+    }
+
+    /** Number of employees in the snapshot. */
+    public int size() {
+        return size;
+    }
+
+    public int id(int row) {
+        return ids[row];
+    }
+
+    /** Position of the row's record in the employee file. */
+    public long position(int row) {
+        return positions[row];
+    }
+
+    public double salary(int row) {
+        return salaries[row];
+    }
+
+    public boolean isMale(int row) {
+        return male.get(row);
+    }
+
+    public boolean isFullTime(int row) {
+        return fullTime.get(row);
+    }
+
+    /** Dictionary code of the row's department; an index into departments(). */
+    public int departmentCode(int row) {
+        return departmentCodes[row];
+    }
+
+    public String department(int row) {
+        return departments.get(departmentCodes[row]);
+    }
+
+    /** Distinct department names, indexed by code. */
+    public List<String> departments() {
+        return departments;
+    }
+
+    /** Row holding the given employee ID, or -1. */
+    public int rowOf(int id) {
+        for (int row = 0; row < size; row++) {
+            if (ids[row] == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    public double totalSalary() {
+        double total = 0;
+        for (int row = 0; row < size; row++) {
+            total += salaries[row];
+        }
+        return total;
+    }
+
+    public double averageSalary() {
+        return size == 0 ? 0 : totalSalary() / size;
+    }
+
+    public long maleCount() {
+        return male.cardinality();
+    }
+
+    public long fullTimeCount() {
+        return fullTime.cardinality();
+    }
+
+    /** Total salary of the rows set in the given bitset (e.g. fullTimeRows()). */
+    public double totalSalary(BitSet rows) {
+        double total = 0;
+        for (int row = rows.nextSetBit(0); row >= 0 && row < size; row = rows.nextSetBit(row + 1)) {
+            total += salaries[row];
+        }
+        return total;
+    }
+
+    /** Copy of the full-time bitset, for combining with and(), andNot() and so on. */
+    public BitSet fullTimeRows() {
+        return (BitSet) fullTime.clone();
+    }
+
+    /** Copy of the male bitset; female rows are its complement over [0, size()). */
+    public BitSet maleRows() {
+        return (BitSet) male.clone();
+    }
+
+    /** Headcount per department code. */
+    public int[] headcountByDepartment() {
+        int[] counts = new int[departments.size()];
+        for (int row = 0; row < size; row++) {
+            counts[departmentCodes[row]]++;
+        }
+        return counts;
+    }
+
+    /** Total salary per department code. */
+    public double[] payrollByDepartment() {
+        double[] totals = new double[departments.size()];
+        for (int row = 0; row < size; row++) {
+            totals[departmentCodes[row]] += salaries[row];
+        }
+        return totals;
+    }
+
+    /** Total salary per department name, in dictionary order. */
+    public Map<String, Double> payrollByDepartmentName() {
+        double[] totals = payrollByDepartment();
+        Map<String, Double> byName = new LinkedHashMap<>();
+        for (int code = 0; code < totals.length; code++) {
+            byName.put(departments.get(code), totals[code]);
+        }
+        return byName;
+    }
+
+    /** Approximate heap used by the columns, for comparison with an object cache. */
+    public long estimatedBytes() {
+        long bytes = (long) size * (4 + 8 + 8 + 4);  // ids, positions, salaries, department codes
+        bytes += male.size() / 8 + fullTime.size() / 8;
+        for (String department : departments) {
+            bytes += 40 + 2L * department.length();
+        }
+        return bytes;
+    }
+}
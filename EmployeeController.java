@@ -1,226 +1,870 @@
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class EmployeeController implements 
         AddRecordDialog.AddRecordListener,
         SearchByIdDialog.SearchByIdListener,
-        SearchBySurnameDialog.SearchBySurnameListener {
-    private static final int MAX_RECORDS = 100;
-    private static final int RECORD_SIZE = 1200;  // byte size of each record in the file
+        SearchBySurnameDialog.SearchBySurnameListener,
+        EmployeeTableModel.RowSource {
+    private static final String FILE_NAME = "employees.dat";
+    private static final int PAGE_SLOTS = 64;     // slots added each time the file grows
+    private static final int MAX_LOAD_CHUNK = 16384;  // most slots the loader adds to the cache at once
+    private static final int QUERY_CHUNK = 256;       // candidates a running query fetches per read lock
+    private static final int FUZZY_MATCHES = 10;      // employees offered by a fuzzy surname search from the dialog
+    private static final int RECORD_SIZE = EmployeeRecordCodec.SIZE;  // byte size of each record in the file
 
-    private RandomAccessFile file;
-    private List<Employee> employees = new ArrayList<>(MAX_RECORDS);      // in-memory cache of employee records
-    private List<EmployeeObserver> observers = new ArrayList<>();         // registered observers (e.g., UI views)
+    // Set by whichever thread opens the file, possibly a background loader
+    private volatile RandomAccessFile file;
+    private volatile FileChannel channel;
+    private volatile WriteAheadLog wal;  // every slot write goes through the log first
+    private final EmployeeRecordCodec pageCodec = new EmployeeRecordCodec(PAGE_SLOTS); // page reads at startup
+    private List<Employee> employees = new ArrayList<>();                 // in-memory cache of records, indexed by slot
+    private final TreeMap<Integer, Integer> slotsById = new TreeMap<>();  // employee ID -> slot, in ID order
+    private final TreeSet<Integer> freeSlots = new TreeSet<>();           // blank slots, lowest reused first
+    private final EmployeeEventBus events = new EmployeeEventBus();       // delivers changes to observers (e.g., UI views)
+    private final SurnameIndex surnameIndex = new SurnameIndex();         // surname -> index in employees
+    private final EmployeeBitmapIndex bitmapIndex = new EmployeeBitmapIndex();  // gender, full-time, department -> slots
+    private final FuzzySurnameIndex fuzzySurnameIndex = new FuzzySurnameIndex();  // sounds-like and misspelt surnames
+    // Guards the in-memory cache so the UI and service threads can share the controller;
+    // writers log under the write lock but wait for the log force after releasing it
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CountDownLatch loaded = new CountDownLatch(1);  // opened once the whole file is in the cache
+    private volatile boolean closed;
+    // Counts and latencies of each operation, shared by all controllers and shown over JMX
+    private static final OperationMetrics READ_METRICS = StorageMetrics.operation("EmployeeController", StorageMetrics.READ);
+    private static final OperationMetrics ADD_METRICS = StorageMetrics.operation("EmployeeController", StorageMetrics.ADD);
+    private static final OperationMetrics UPDATE_METRICS =
+            StorageMetrics.operation("EmployeeController", StorageMetrics.UPDATE);
+    private static final OperationMetrics DELETE_METRICS =
+            StorageMetrics.operation("EmployeeController", StorageMetrics.DELETE);
+    private static final OperationMetrics SEARCH_BY_ID_METRICS =
+            StorageMetrics.operation("EmployeeController", StorageMetrics.SEARCH_BY_ID);
+    private static final OperationMetrics FUZZY_SEARCH_METRICS =
+            StorageMetrics.operation("EmployeeController", StorageMetrics.FUZZY_SEARCH_BY_SURNAME);
+    private static final OperationMetrics SEARCH_BY_SURNAME_METRICS =
+            StorageMetrics.operation("EmployeeController", StorageMetrics.SEARCH_BY_SURNAME);
 
+    /** Receives the progress of a background load, on the loading thread. */
+    public interface LoadListener {
+        /** Called after each chunk of slots is in the cache; the first call comes after one page. */
+        void loadProgress(int slotsLoaded, int totalSlots);
+
+        /** Called once at the end, with null if the whole file was loaded. */
+        void loadFinished(IOException failure);
+    }
+
+    /** Open the employee file and load every record before returning. */
     public EmployeeController() {
         try {
-            file = new RandomAccessFile("employees.dat", "rw");
-            // If file is shorter than expected size, initialize it with blank records
-            if (file.length() < RECORD_SIZE * MAX_RECORDS) {
-                RandomAccessEmployeeRecord blank = new RandomAccessEmployeeRecord();
-                for (int i = 0; i < MAX_RECORDS; i++) {
-                    blank.write(file);  // write 100 blank records to ensure file is initialized
-                }
-            }
-            loadAllEmployees();
+            openAndLoad(null);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    /** Register an observer to be notified when employee data changes. */
+    private EmployeeController(LoadListener listener) {
+        Thread loader = new Thread(() -> {
+            IOException failure = null;
+            try {
+                openAndLoad(listener);
+            } catch (IOException e) {
+                if (!closed) {
+                    failure = e;
+                }
+            }
+            listener.loadFinished(failure);
+        }, "employee-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Open the employee file and load it on a background thread, so the caller (e.g., the event
+     * dispatch thread) is never held up by the file. Reads see the records loaded so far and the
+     * listener hears about each chunk; writes wait until the load has finished.
+     */
+    public static EmployeeController openInBackground(LoadListener listener) {
+        return new EmployeeController(listener);
+    }
+
+    private void openAndLoad(LoadListener listener) throws IOException {
+        try {
+            EmployeeFileFormat.prepare(Paths.get(FILE_NAME));  // add header or migrate a legacy layout
+            file = new RandomAccessFile(FILE_NAME, "rw");
+            channel = file.getChannel();
+            wal = WriteAheadLog.open(Paths.get(FILE_NAME), channel);  // replays writes left by a crash
+            loadAllEmployees(listener);
+            wal.startCheckpoints(this::checkpoint);
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    /** True once the whole file has been loaded (or failed to load). */
+    public boolean isLoaded() {
+        return loaded.getCount() == 0;
+    }
+
+    /** Utility: Block until the load has finished; false if interrupted while waiting. */
+    private boolean awaitLoaded() {
+        try {
+            loaded.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Register an observer to be notified, on the event thread, when employee data changes. */
     public void addObserver(EmployeeObserver observer) {
-        observers.add(observer);
+        events.subscribe(observer);
+    }
+
+    /** Register an observer to be notified through the given executor (e.g., SwingUtilities::invokeLater). */
+    public void addObserver(EmployeeObserver observer, Executor executor) {
+        events.subscribe(observer, executor);
     }
 
     /** Remove an observer from notifications. */
     public void removeObserver(EmployeeObserver observer) {
-        observers.remove(observer);
+        events.unsubscribe(observer);
     }
 
-    /** Notify all observers that the employee data has changed. */
-    private void notifyObservers() {
-        for (EmployeeObserver obs : observers) {
-            obs.employeeDataChanged();
+    /**
+     * Load all employee records from the file into the in-memory list. Chunks are decoded outside
+     * the lock and added under it, starting with a single page and doubling, so the first records
+     * can be shown almost at once and readers are never kept waiting for long.
+     */
+    private void loadAllEmployees(LoadListener listener) throws IOException {
+        int slots = (int) ((channel.size() - EmployeeFileFormat.FIRST_RECORD) / RECORD_SIZE);
+        int chunk = PAGE_SLOTS;
+        for (int index = 0; index < slots && !closed; index += chunk, chunk = Math.min(chunk * 2, MAX_LOAD_CHUNK)) {
+            List<Employee> decoded = readSlots(index, Math.min(chunk, slots - index));
+            String[] surnames = new String[decoded.size()];
+            long[] slotsOfSurnames = new long[decoded.size()];
+            int named = 0;
+            lock.writeLock().lock();
+            try {
+                for (Employee emp : decoded) {
+                    int slot = employees.size();
+                    if (emp == null) {
+                        employees.add(null);
+                        freeSlots.add(slot);
+                    } else {
+                        employees.add(emp);
+                        slotsById.put(emp.getId(), slot);
+                        bitmapIndex.add(emp, slot);
+                        surnames[named] = emp.getSurname();
+                        slotsOfSurnames[named++] = slot;
+                    }
+                }
+                surnameIndex.addAll(surnames, slotsOfSurnames, named);  // one merge per chunk, not an insert per record
+                fuzzySurnameIndex.addAll(surnames, named);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (listener != null) {
+                listener.loadProgress(index + decoded.size(), slots);
+            }
         }
     }
 
-    /** Load all employee records from the file into the in-memory list. */
-    private void loadAllEmployees() throws IOException {
-        employees.clear();
-        file.seek(0);
-        for (int index = 0; index < MAX_RECORDS; index++) {
-            file.seek(index * RECORD_SIZE);
-            int id = file.readInt();  // read employee ID
-            if (id == 0) {
-                // No record at this slot (id=0 indicates blank record)
+    /** Utility: Decode count slots from the file, null for blank ones. */
+    private List<Employee> readSlots(int first, int count) throws IOException {
+        List<Employee> decoded = new ArrayList<>(count);
+        // Read a page of records per positional read, then decode record by record
+        while (decoded.size() < count) {
+            ByteBuffer page = pageCodec.readBatch(channel, slotPosition(first + decoded.size()), count - decoded.size());
+            if (!page.hasRemaining()) {
+                break;  // file ended early
+            }
+            while (page.hasRemaining()) {
+                Employee emp = new Employee();
+                EmployeeRecordCodec.decode(page, emp);
+                if (emp.getId() == 0) {
+                    // No record at this slot (id=0 indicates blank record)
+                    decoded.add(null);
+                } else {
+                    // Trim the padding of fixed-length strings
+                    emp.setPps(emp.getPps().trim());
+                    emp.setSurname(emp.getSurname().trim());
+                    emp.setFirstName(emp.getFirstName().trim());
+                    emp.setDepartment(emp.getDepartment().trim());
+                    decoded.add(emp);
+                }
+            }
+        }
+        return decoded;
+    }
+
+    /** Take the lowest blank slot, growing the file by a page of blank slots if there is none. */
+    private int allocateSlot() throws IOException {
+        if (freeSlots.isEmpty()) {
+            int first = employees.size();
+            List<Employee> blanks = new ArrayList<>(PAGE_SLOTS);
+            for (int index = first; index < first + PAGE_SLOTS; index++) {
+                blanks.add(new RandomAccessEmployeeRecord());
                 employees.add(null);
-                // Skip the rest of this record's bytes
-                file.seek((index * RECORD_SIZE) + RECORD_SIZE);
-            } else {
-                // Read fixed-length fields for pps, first name, surname
-                String pps = readFixedLengthString();
-                String firstName = readFixedLengthString();
-                String surname = readFixedLengthString();
-                char gender = file.readBoolean() ? 'M' : 'F';
-                String department = readFixedLengthString();
-                int salary = file.readInt();
-                boolean fullTime = file.readBoolean();
-                // Trim any trailing spaces from fixed-length strings and create Employee object
-                Employee emp = new Employee(id, pps.trim(), firstName.trim(), surname.trim(), gender, department.trim(), salary, fullTime);
-                employees.add(emp);
+                freeSlots.add(index);
             }
+            pageCodec.writeBatch(channel, slotPosition(first), blanks);
         }
+        return freeSlots.pollFirst();
+    }
+
+    /** Log the employee (or a blank record when null) for its slot; returns the lsn to wait for. */
+    private long writeSlot(int index, Employee emp) throws IOException {
+        return wal.append(slotPosition(index), emp != null ? emp : new RandomAccessEmployeeRecord());
     }
 
-    /** Utility: Read a fixed-length (15 char) string from the file. */
-    private String readFixedLengthString() throws IOException {
-        char[] chars = new char[15];
-        for (int i = 0; i < chars.length; i++) {
-            chars[i] = file.readChar();
+    /**
+     * Wait until a logged slot write is on disk, then publish the change in the place its ticket
+     * took under the write lock, so observers see changes in the order they were made even when
+     * the writers' waits end in another order. Throws if the force failed.
+     */
+    private void commit(long lsn, EmployeeEventBus.Ticket ticket, EmployeeChange.Type type, int id) throws IOException {
+        try {
+            wal.awaitDurable(lsn);
+        } catch (IOException e) {
+            events.cancel(ticket);  // later changes must not wait for this one
+            metricsFor(type).failed();
+            throw e;
         }
-        return new String(chars);
+        events.publish(ticket, new EmployeeChange(type, id));
     }
 
-    /** Utility: Write a string as fixed-length (15 char) to the file (pads or truncates as needed). */
-    private void writeFixedLengthString(String s) throws IOException {
-        StringBuffer buffer = (s != null) ? new StringBuffer(s) : new StringBuffer(15);
-        buffer.setLength(15);
-        file.writeChars(buffer.toString());
+    /** Utility: Metrics of the operation that makes a change of the given type. */
+    private static OperationMetrics metricsFor(EmployeeChange.Type type) {
+        switch (type) {
+            case ADDED:
+                return ADD_METRICS;
+            case EDITED:
+                return UPDATE_METRICS;
+            default:
+                return DELETE_METRICS;
+        }
     }
 
-    /** Search for an employee by ID using the strategy pattern (IdSearchStrategy). */
+    /** Copy logged slot writes into the file; runs in the background (the cache never rereads the file). */
+    private void checkpoint() {
+        try {
+            wal.checkpoint();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Utility: File position of a slot, counted after the file header. */
+    private static long slotPosition(int index) {
+        return EmployeeFileFormat.FIRST_RECORD + (long) index * RECORD_SIZE;
+    }
+
+    /** Search for an employee by ID using the strategy pattern (IdSearchStrategy over the ID directory). */
     public Employee searchById(int id) {
-        SearchStrategy strategy = new IdSearchStrategy();
-        return strategy.search(String.valueOf(id), employees);
+        long start = System.nanoTime();
+        SearchStrategy strategy = new IdSearchStrategy(slotsById);
+        lock.readLock().lock();
+        try {
+            return strategy.search(String.valueOf(id), employees);
+        } finally {
+            lock.readLock().unlock();
+            SEARCH_BY_ID_METRICS.record(start);
+        }
     }
 
-    /** Search for an employee by surname using the strategy pattern (SurnameSearchStrategy). */
+    /** Search for an employee by surname using the strategy pattern (indexed surname lookup). */
     public Employee searchBySurname(String surname) {
-        SearchStrategy strategy = new SurnameSearchStrategy();
-        return strategy.search(surname, employees);
+        long start = System.nanoTime();
+        SearchStrategy strategy = new IndexedSurnameSearchStrategy(surnameIndex, false);
+        lock.readLock().lock();
+        try {
+            return strategy.search(surname, employees);
+        } finally {
+            lock.readLock().unlock();
+            SEARCH_BY_SURNAME_METRICS.record(start);
+        }
     }
 
-    /** Add a new employee record. Returns true if successful, false if failed (e.g., ID already in use). */
-    public boolean addEmployee(Employee newEmp) {
-        int id = newEmp.getId();
-        if (id < 1 || id > MAX_RECORDS) return false;
-        if (employees.get(id - 1) != null) {
-            // Slot already occupied
-            return false;
+    /** Find every employee with the given surname (case-insensitive), in file order. */
+    public List<Employee> searchAllBySurname(String surname) {
+        long start = System.nanoTime();
+        MultiSearchStrategy strategy = new IndexedSurnameSearchStrategy(surnameIndex, false);
+        lock.readLock().lock();
+        try {
+            return strategy.searchAll(surname, employees);
+        } finally {
+            lock.readLock().unlock();
+            SEARCH_BY_SURNAME_METRICS.record(start);
         }
+    }
+
+    /** Find every employee whose surname starts with the given prefix, in surname order. */
+    public List<Employee> searchBySurnamePrefix(String prefix) {
+        long start = System.nanoTime();
+        MultiSearchStrategy strategy = new IndexedSurnameSearchStrategy(surnameIndex, true);
+        lock.readLock().lock();
         try {
-            // Write the new record to file at the correct position
-            file.seek((id - 1) * RECORD_SIZE);
-            file.writeInt(newEmp.getId());
-            writeFixedLengthString(newEmp.getPps());
-            writeFixedLengthString(newEmp.getFirstName());
-            writeFixedLengthString(newEmp.getSurname());
-            file.writeBoolean(newEmp.getGender() == 'M');
-            writeFixedLengthString(newEmp.getDepartment());
-            file.writeDouble(newEmp.getSalary());
-            file.writeBoolean(newEmp.getFullTime());
-            // Update in-memory list
-            employees.set(id - 1, newEmp);
-            // Notify UI observers of data change
-            notifyObservers();
-            return true;
+            return strategy.searchAll(prefix, employees);
+        } finally {
+            lock.readLock().unlock();
+            SEARCH_BY_SURNAME_METRICS.record(start);
+        }
+    }
+
+    /**
+     * Up to limit employees whose surnames sound like or are spelt close to the given one,
+     * closest first (O'Brien for Obrien or O Brian, McCarthy for MacCarthy or Mccarty).
+     */
+    public List<Employee> searchBySurnameFuzzy(String surname, int limit) {
+        long start = System.nanoTime();
+        MultiSearchStrategy strategy = new FuzzySurnameSearchStrategy(fuzzySurnameIndex, surnameIndex, limit);
+        lock.readLock().lock();
+        try {
+            return strategy.searchAll(surname, employees);
+        } finally {
+            lock.readLock().unlock();
+            FUZZY_SEARCH_METRICS.record(start);
+        }
+    }
+
+    /** Up to limit employees with IDs above afterId, in ID order; pass the last ID returned to get the next page. */
+    public List<Employee> listEmployees(int afterId, int limit) {
+        List<Employee> page = new ArrayList<>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try {
+            for (int slot : slotsById.tailMap(afterId, false).values()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(employees.get(slot));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return page;
+    }
+
+    /**
+     * Choose how to answer a query: from the index that leaves the fewest candidates (the ID
+     * directory for an ID range, the surname index for a surname or prefix, the bitmap index
+     * for gender, full-time and department) or, when none narrows it, from a scan of every
+     * slot. Nothing is read until the plan's stream is used.
+     */
+    public QueryPlan plan(EmployeeQuery query) {
+        List<AccessPath> paths = new ArrayList<>();
+        long total;
+        lock.readLock().lock();
+        try {
+            total = slotsById.size();
+            paths.add(new AccessPath("scan of all slots", total, SlotScan::new));
+            if (query.hasIdRange()) {
+                int from = query.getMinId();
+                int to = query.getMaxId();
+                long span = Math.max(0, (long) to - from + 1);
+                paths.add(new AccessPath("ID directory, " + from + ".." + to, Math.min(span, total),
+                        () -> new IdRange(from, to)));
+            }
+            String surname = query.getSurname();
+            if (surname != null) {
+                boolean prefix = query.isSurnamePrefix();
+                paths.add(new AccessPath("surname index, " + (prefix ? "prefix" : "exact") + " \"" + surname + "\"",
+                        prefix ? surnameIndex.countPrefix(surname) : surnameIndex.count(surname),
+                        () -> new SurnameLookup(surname, prefix)));
+            }
+            SlotBitmap slots = query.bitmapSlots(bitmapIndex);
+            if (slots != null) {
+                paths.add(new AccessPath("bitmap index", slots.cardinality(), () -> new BitmapScan(slots)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        AccessPath best = paths.get(0);
+        for (AccessPath path : paths) {
+            if (path.estimate < best.estimate) {
+                best = path;  // ties go to the scan, which reads slots in order
+            }
+        }
+        StringJoiner rejected = new StringJoiner(", ");
+        for (AccessPath path : paths) {
+            if (path != best) {
+                rejected.add(path.description + " ~" + path.estimate);
+            }
+        }
+        return new QueryPlan(query, best.description, best.estimate, total, rejected.toString(), best.candidates);
+    }
+
+    /** Employees matching the query, read lazily as the stream is consumed (see plan() and QueryPlan.stream()). */
+    public Stream<Employee> query(EmployeeQuery query) {
+        return plan(query).stream();
+    }
+
+    /**
+     * Number of employees matching the query. A query made only of gender, full-time and
+     * department criteria is a few bitmap operations and a cardinality; others are run.
+     */
+    public long count(EmployeeQuery query) {
+        if (query.isBitmapOnly()) {
+            lock.readLock().lock();
+            try {
+                SlotBitmap slots = query.bitmapSlots(bitmapIndex);
+                return slots == null ? slotsById.size() : slots.cardinality();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return query(query).count();
+    }
+
+    /** Number of employees on file. */
+    public int employeeCount() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Add a new employee record. Waits for a background load. Returns true if successful, false if failed (e.g., ID already in use). */
+    public boolean addEmployee(Employee newEmp) {
+        try {
+            return insertEmployee(newEmp);
         } catch (IOException e) {
             e.printStackTrace();
             return false;
         }
     }
 
-    /** Edit an existing employee record. Returns true if successful. */
+    /** Add a new employee record as addEmployee() does, but throw a file error instead of returning false. Returns false if the ID is invalid or in use. */
+    public boolean insertEmployee(Employee newEmp) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return add(newEmp);
+        } finally {
+            ADD_METRICS.record(start);
+        }
+    }
+
+    private boolean add(Employee newEmp) throws IOException {
+        int id = newEmp.getId();
+        if (id < 1) return false;
+        loadedLog();  // waits for a background load, and fails if it could not open the file
+        long lsn;
+        EmployeeEventBus.Ticket ticket;  // the change's place among events, taken in lock order
+        lock.writeLock().lock();
+        try {
+            if (slotsById.containsKey(id)) {
+                // ID already in use
+                return false;
+            }
+            // Write the new record to a free slot
+            int index = allocateSlot();
+            try {
+                lsn = writeSlot(index, newEmp);
+                ticket = events.reserve();
+            } catch (IOException e) {
+                freeSlots.add(index);
+                throw e;
+            }
+            // Update in-memory list and directory
+            employees.set(index, newEmp);
+            slotsById.put(id, index);
+            surnameIndex.add(newEmp.getSurname(), index);
+            bitmapIndex.add(newEmp, index);
+            fuzzySurnameIndex.add(newEmp.getSurname());
+        } catch (IOException e) {
+            ADD_METRICS.failed();
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Notify UI observers of data change once it is on disk
+        commit(lsn, ticket, EmployeeChange.Type.ADDED, id);
+        return true;
+    }
+
+    /** Edit an existing employee record, after any background load. Returns true if successful. */
     public boolean editEmployee(Employee updatedEmp) {
-    	int id = updatedEmp.getEmployeeId();
-        if (id < 1 || id > MAX_RECORDS) return false;
-        if (employees.get(id - 1) == null) {
-            // No record exists at this ID to edit
+        try {
+            return updateEmployee(updatedEmp);
+        } catch (IOException e) {
+            e.printStackTrace();
             return false;
         }
+    }
+
+    /** Edit an existing employee record as editEmployee() does, but throw a file error instead of returning false. Returns false if there is no such employee. */
+    public boolean updateEmployee(Employee updatedEmp) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return edit(updatedEmp);
+        } finally {
+            UPDATE_METRICS.record(start);
+        }
+    }
+
+    private boolean edit(Employee updatedEmp) throws IOException {
+    	int id = updatedEmp.getEmployeeId();
+        loadedLog();  // waits for a background load, and fails if it could not open the file
+        long lsn;
+        EmployeeEventBus.Ticket ticket;  // the change's place among events, taken in lock order
+        lock.writeLock().lock();
         try {
+            Integer index = slotsById.get(id);
+            if (index == null) {
+                // No record exists at this ID to edit
+                return false;
+            }
             // Overwrite the record at the given position with new data
-            file.seek((id - 1) * RECORD_SIZE);
-            file.writeInt(updatedEmp.getEmployeeId());
-            writeFixedLengthString(updatedEmp.getPps());
-            writeFixedLengthString(updatedEmp.getFirstName());
-            writeFixedLengthString(updatedEmp.getSurname());
-            file.writeBoolean(updatedEmp.getGender() == 'M');
-            writeFixedLengthString(updatedEmp.getDepartment());
-            file.writeDouble(updatedEmp.getSalary());
-            file.writeBoolean(updatedEmp.getFullTime());
+            lsn = writeSlot(index, updatedEmp);
+            ticket = events.reserve();
             // Update memory cache
-            employees.set(id - 1, updatedEmp);
-            notifyObservers();
-            return true;
+            surnameIndex.remove(employees.get(index).getSurname(), index);
+            bitmapIndex.remove(employees.get(index), index);
+            fuzzySurnameIndex.remove(employees.get(index).getSurname());
+            employees.set(index, updatedEmp);
+            surnameIndex.add(updatedEmp.getSurname(), index);
+            bitmapIndex.add(updatedEmp, index);
+            fuzzySurnameIndex.add(updatedEmp.getSurname());
         } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+            UPDATE_METRICS.failed();
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
         }
+        commit(lsn, ticket, EmployeeChange.Type.EDITED, id);
+        return true;
     }
 
-    /** Delete an employee record by ID (mark as blank). Returns true if successful. */
+    /** Delete an employee record by ID (mark as blank), after any background load. Returns true if successful. */
     public boolean deleteEmployee(int id) {
-        if (id < 1 || id > MAX_RECORDS) return false;
-        if (employees.get(id - 1) == null) {
-            // Already empty
+        try {
+            return removeEmployee(id);
+        } catch (IOException e) {
+            e.printStackTrace();
             return false;
         }
+    }
+
+    /** Delete an employee record as deleteEmployee() does, but throw a file error instead of returning false. Returns false if there is no such employee. */
+    public boolean removeEmployee(int id) throws IOException {
+        long start = System.nanoTime();
         try {
+            return delete(id);
+        } finally {
+            DELETE_METRICS.record(start);
+        }
+    }
+
+    private boolean delete(int id) throws IOException {
+        loadedLog();  // waits for a background load, and fails if it could not open the file
+        long lsn;
+        EmployeeEventBus.Ticket ticket;  // the change's place among events, taken in lock order
+        lock.writeLock().lock();
+        try {
+            Integer index = slotsById.get(id);
+            if (index == null) {
+                // Already empty
+                return false;
+            }
             // Write a blank record (id=0 and empty fields) at this position
-            file.seek((id - 1) * RECORD_SIZE);
-            file.writeInt(0);
-            writeFixedLengthString("");  // blank PPS
-            writeFixedLengthString("");  // blank first name
-            writeFixedLengthString("");  // blank surname
-            file.writeBoolean(false);
-            writeFixedLengthString("");  // blank department
-            file.writeInt(0);
-            file.writeBoolean(false);
-            // Update memory cache
-            employees.set(id - 1, null);
-            notifyObservers();
-            return true;
+            lsn = writeSlot(index, null);
+            ticket = events.reserve();
+            // Update memory cache and release the slot for reuse
+            surnameIndex.remove(employees.get(index).getSurname(), index);
+            bitmapIndex.remove(employees.get(index), index);
+            fuzzySurnameIndex.remove(employees.get(index).getSurname());
+            employees.set(index, null);
+            slotsById.remove(id);
+            freeSlots.add(index);
         } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+            DELETE_METRICS.failed();
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
         }
+        commit(lsn, ticket, EmployeeChange.Type.DELETED, id);
+        return true;
     }
 
     /** Get the next non-empty employee record after the given employee ID. */
     public Employee getNextEmployee(int currentId) {
-        for (int rec = currentId + 1; rec <= MAX_RECORDS; rec++) {
-            Employee emp = employees.get(rec - 1);
-            if (emp != null) {
-                return emp;
-            }
-        }
-        return null;
+        return employeeFor(ids -> ids.higherEntry(currentId));
     }
 
     /** Get the previous non-empty employee record before the given employee ID. */
     public Employee getPreviousEmployee(int currentId) {
-        for (int rec = currentId - 1; rec >= 1; rec--) {
-            Employee emp = employees.get(rec - 1);
-            if (emp != null) {
-                return emp;
+        return employeeFor(ids -> ids.lowerEntry(currentId));
+    }
+
+    /** Get the employee with the lowest ID, or null if there are none. */
+    public Employee getFirstEmployee() {
+        return employeeFor(TreeMap::firstEntry);
+    }
+
+    /** Get the employee with the highest ID, or null if there are none. */
+    public Employee getLastEmployee() {
+        return employeeFor(TreeMap::lastEntry);
+    }
+
+    /** Utility: Employee in the slot named by a directory entry (null entry gives null). */
+    private Employee employeeFor(Map.Entry<Integer, Integer> entry) {
+        return entry == null ? null : employees.get(entry.getValue());
+    }
+
+    /** Utility: Look up a directory entry and its employee under the read lock. */
+    private Employee employeeFor(Function<TreeMap<Integer, Integer>, Map.Entry<Integer, Integer>> lookup) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            return employeeFor(lookup.apply(slotsById));
+        } finally {
+            lock.readLock().unlock();
+            READ_METRICS.record(start);
+        }
+    }
+
+    /** Build a columnar snapshot of the record file for reports (much smaller than the object cache). */
+    public EmployeeColumns columnarSnapshot() throws IOException {
+        loadedLog().checkpoint();
+        return EmployeeColumns.load(channel);
+    }
+
+    /** Table model over a snapshot of all employees that takes their text fields from the cache as rows are shown. */
+    public EmployeeTableModel summaryTableModel() throws IOException {
+        EmployeeColumns snapshot = columnarSnapshot();  // waits for a background load to open the file
+        return new EmployeeTableModel(this, snapshot);
+    }
+
+    /** The cached employee in the slot at each file position, null for a blank slot; used by the table model. */
+    @Override
+    public Employee[] employeesAt(long[] positions) {
+        Employee[] found = new Employee[positions.length];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < positions.length; i++) {
+                long index = (positions[i] - EmployeeFileFormat.FIRST_RECORD) / RECORD_SIZE;
+                if (index >= 0 && index < employees.size()) {
+                    found[i] = employees.get((int) index);
+                }
             }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    /** File positions of the named employees in surname order, from the surname index; used by the table model. */
+    @Override
+    public long[] positionsBySurname() {
+        lock.readLock().lock();
+        try {
+            long[] positions = surnameIndex.all();  // the controller's index holds slots
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = slotPosition((int) positions[i]);
+            }
+            return positions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Payroll per department and full-time status, scanned from the record file in parallel. */
+    public PayrollReport payrollReport() throws IOException {
+        loadedLog().checkpoint();
+        return PayrollAggregator.aggregate(channel);
+    }
+
+    /** Utility: The log of the open file, after any background load; fails if the file could not be opened. */
+    private WriteAheadLog loadedLog() throws IOException {
+        if (!awaitLoaded()) {
+            throw new InterruptedIOException("Interrupted while waiting for the employee file to load");
         }
-        return null;
+        WriteAheadLog log = wal;
+        if (log == null) {
+            throw new IOException("The employee file " + FILE_NAME + " is not open; it could not be loaded");
+        }
+        return log;
     }
 
     /** Close the underlying file (should be called on application exit). */
     public void close() {
+        closed = true;  // a background load stops after its current chunk
         try {
+            events.close();
+            if (wal != null) wal.close();
             if (file != null) file.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /** One way of producing a query's candidates, with the number it is expected to produce. */
+    private static class AccessPath {
+        final String description;
+        final long estimate;
+        final Supplier<Iterator<Employee>> candidates;
+
+        AccessPath(String description, long estimate, Supplier<Iterator<Employee>> candidates) {
+            this.description = description;
+            this.estimate = estimate;
+            this.candidates = candidates;
+        }
+    }
+
+    /**
+     * Candidates of a running query, fetched QUERY_CHUNK at a time under the read lock so that
+     * a slow consumer never holds up writers for more than one chunk.
+     */
+    private abstract class QueryCursor implements Iterator<Employee> {
+        private final List<Employee> chunk = new ArrayList<>(QUERY_CHUNK);
+        private int next;
+        private boolean exhausted;
+
+        /** Add up to QUERY_CHUNK more candidates; false once there are none after them. Runs under the read lock. */
+        abstract boolean fill(List<Employee> chunk);
+
+        @Override
+        public boolean hasNext() {
+            while (next == chunk.size() && !exhausted) {
+                chunk.clear();
+                next = 0;
+                lock.readLock().lock();
+                try {
+                    exhausted = !fill(chunk);
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+            return next < chunk.size();
+        }
+
+        @Override
+        public Employee next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunk.get(next++);
+        }
+    }
+
+    /** Every employee, in slot order. */
+    private class SlotScan extends QueryCursor {
+        private int slot;
+
+        @Override
+        boolean fill(List<Employee> chunk) {
+            int end = Math.min(employees.size(), slot + QUERY_CHUNK);
+            for (; slot < end; slot++) {
+                Employee emp = employees.get(slot);
+                if (emp != null) {
+                    chunk.add(emp);
+                }
+            }
+            return slot < employees.size();
+        }
+    }
+
+    /** Employees with IDs in a range, in ID order, from the ID directory. */
+    private class IdRange extends QueryCursor {
+        private int from;  // lowest ID not yet fetched
+        private final int to;
+
+        IdRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        boolean fill(List<Employee> chunk) {
+            if (from > to) {
+                return false;
+            }
+            int last = from;
+            for (Map.Entry<Integer, Integer> entry : slotsById.subMap(from, true, to, true).entrySet()) {
+                if (chunk.size() == QUERY_CHUNK) {
+                    from = last + 1;
+                    return true;
+                }
+                last = entry.getKey();
+                chunk.add(employees.get(entry.getValue()));
+            }
+            return false;
+        }
+    }
+
+    /** Employees in the slots of a bitmap, in slot order. The bitmap may be a live one of the bitmap index. */
+    private class BitmapScan extends QueryCursor {
+        private final SlotBitmap slots;
+        private int slot;  // lowest slot not yet fetched
+
+        BitmapScan(SlotBitmap slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        boolean fill(List<Employee> chunk) {
+            while (chunk.size() < QUERY_CHUNK) {
+                slot = slots.nextSlot(slot);
+                if (slot < 0) {
+                    return false;
+                }
+                Employee emp = employees.get(slot++);
+                if (emp != null) {
+                    chunk.add(emp);
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Employees with a surname or surname prefix, in surname order, from the surname index. */
+    private class SurnameLookup extends QueryCursor {
+        private final String surname;
+        private final boolean prefix;
+        private long[] slots;  // looked up when the first chunk is fetched
+        private int at;
+
+        SurnameLookup(String surname, boolean prefix) {
+            this.surname = surname;
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean fill(List<Employee> chunk) {
+            if (slots == null) {
+                slots = prefix ? surnameIndex.prefix(surname) : surnameIndex.exact(surname);
+            }
+            int end = Math.min(slots.length, at + QUERY_CHUNK);
+            for (; at < end; at++) {
+                Employee emp = employees.get((int) slots[at]);
+                if (emp != null) {
+                    chunk.add(emp);  // may have been replaced since the lookup; the query tests it again
+                }
+            }
+            return at < slots.length;
+        }
+    }
+
     // Implementation of listener interface methods (delegating to controller logic):
 
     @Override
@@ -242,4 +886,9 @@ public class EmployeeController implements
     public Employee onSearchBySurname(String surname) {
         return searchBySurname(surname);
     }
+
+    @Override
+    public List<Employee> onFuzzySearchBySurname(String surname) {
+        return searchBySurnameFuzzy(surname, FUZZY_MATCHES);
+    }
 }
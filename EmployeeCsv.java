@@ -0,0 +1,135 @@
+/*
+ *
+ * This is the CSV mapping for employee rows
+ *
+ * */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One employee per line with the columns of HEADER. Fields may be quoted with '"', and a
+ * quote inside a quoted field is written twice. Gender is M or F; full time accepts
+ * true/false, yes/no or 1/0.
+ */
+public final class EmployeeCsv {
+    public static final String HEADER = "id,pps,surname,firstName,gender,department,salary,fullTime";
+    private static final int COLUMNS = 8;
+
+    private EmployeeCsv() {
+    }
+
+    /** Whether the line is the column header rather than an employee row. */
+    public static boolean isHeader(String line) {
+        return line.regionMatches(true, 0, "id,", 0, 3);
+    }
+
+    /** Parse one CSV line into a new employee, throwing IllegalArgumentException with the reason if it is malformed. */
+    public static Employee parse(String line) {
+        List<String> fields = split(line);
+        if (fields.size() != COLUMNS) {
+            throw new IllegalArgumentException("expected " + COLUMNS + " columns but found " + fields.size());
+        }
+        Employee employee = new Employee();
+        employee.setEmployeeId(parseInt(fields.get(0), "id"));
+        employee.setPps(fields.get(1).trim());
+        employee.setSurname(fields.get(2).trim());
+        employee.setFirstName(fields.get(3).trim());
+        employee.setGender(parseGender(fields.get(4)));
+        employee.setDepartment(fields.get(5).trim());
+        employee.setSalary(parseDouble(fields.get(6), "salary"));
+        employee.setFullTime(parseBoolean(fields.get(7)));
+        return employee;
+    }
+
+    /** Append the employee as one CSV line (without the line break), trimming record padding. */
+    public static void append(Employee employee, StringBuilder out) {
+        out.append(employee.getEmployeeId()).append(',');
+        appendField(employee.getPps(), out);
+        out.append(',');
+        appendField(employee.getSurname(), out);
+        out.append(',');
+        appendField(employee.getFirstName(), out);
+        out.append(',').append(employee.getGender()).append(',');
+        appendField(employee.getDepartment(), out);
+        out.append(',').append(employee.getSalary());
+        out.append(',').append(employee.getFullTime());
+    }
+
+    // Write a field, quoting it when it holds a comma, quote or line break
+    private static void appendField(String value, StringBuilder out) {
+        String field = value == null ? "" : value.trim();
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            out.append(field);
+            return;
+        }
+        out.append('"').append(field.replace("\"", "\"\"")).append('"');
+    }
+
+    // Split a line on commas outside quotes, unquoting quoted fields
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(COLUMNS);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static int parseInt(String field, String column) {
+        try {
+            return Integer.parseInt(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a whole number: " + field);
+        }
+    }
+
+    private static double parseDouble(String field, String column) {
+        try {
+            return Double.parseDouble(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: " + field);
+        }
+    }
+
+    private static char parseGender(String field) {
+        String gender = field.trim().toUpperCase();
+        if (gender.equals("M") || gender.equals("F")) {
+            return gender.charAt(0);
+        }
+        throw new IllegalArgumentException("gender must be M or F: " + field);
+    }
+
+    private static boolean parseBoolean(String field) {
+        switch (field.trim().toLowerCase()) {
+            case "true": case "yes": case "1":
+                return true;
+            case "false": case "no": case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("fullTime must be true or false: " + field);
+        }
+    }
+}
@@ -1,63 +1,509 @@
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import javax.swing.JOptionPane;
 
 public class EmployeeDAO {
     private RandomAccessFile output;
     private RandomAccessFile input;
+    private MappedRecordStore mappedInput;  // memory-mapped view of input, null when reading with seek/read
+    private static final int SCAN_BATCH = 256;  // records decoded per read when scanning the whole file
+    private static final int IMPORT_BATCH = 16384;  // records appended per write during a bulk import
+    private static final int CACHE_RECORDS = 4096;  // decoded records kept by readEmployee
+    private final RecordCache cache = new RecordCache(CACHE_RECORDS);
+    // Codecs keep a reusable buffer, so each thread gets its own
+    private final ThreadLocal<EmployeeRecordCodec> codec = ThreadLocal.withInitial(EmployeeRecordCodec::new);
+    private final ThreadLocal<EmployeeRecordCodec> scanCodec =
+            ThreadLocal.withInitial(() -> new EmployeeRecordCodec(SCAN_BATCH));
+    private PpsIndex ppsIndex;  // on-disk PPS index, null when the DAO was given open files
+    private SurnameIndex surnameIndex;  // surname -> record position, null when the DAO was given open files
+    private FreeSlotList freeSlots;  // deleted positions reused by adds, null when the DAO was given open files
+    private volatile WriteAheadLog wal;  // log that makes writes durable, null when the DAO was given open files
+    private Path dataPath;  // file opened by this DAO, null when the DAO was given open files
+    private boolean memoryMapped;
 
-    // Constructor that takes an existing file
-    public EmployeeDAO(RandomAccessFile input, RandomAccessFile output) {
+    // Locks, always taken in this order:
+    // - mutationLock serialises adds, imports, checkpoints and compaction, so PPS checks and
+    //   slot choice see one writer at a time; updates and deletes do not take it
+    // - recordWriters is shared by every record write; compaction holds it exclusively while it
+    //   copies the file, so reads carry on during the copy but writes wait
+    // - fileLock is shared by reads and record writes; its write side is held only to checkpoint
+    //   the log or swap the compacted file in
+    // - recordLocks guards single records: writes to different records run in parallel and
+    //   reads validate optimistically instead of waiting for them
+    private final Object mutationLock = new Object();
+    private final ReentrantReadWriteLock recordWriters = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock fileLock = new ReentrantReadWriteLock();
+    private final RecordLocks recordLocks = new RecordLocks();
+
+    // Counts and latencies of each operation, shared by all DAOs and shown over JMX
+    private static final OperationMetrics READ_METRICS = StorageMetrics.operation("EmployeeDAO", StorageMetrics.READ);
+    private static final OperationMetrics ADD_METRICS = StorageMetrics.operation("EmployeeDAO", StorageMetrics.ADD);
+    private static final OperationMetrics UPDATE_METRICS = StorageMetrics.operation("EmployeeDAO", StorageMetrics.UPDATE);
+    private static final OperationMetrics DELETE_METRICS = StorageMetrics.operation("EmployeeDAO", StorageMetrics.DELETE);
+    private static final OperationMetrics SEARCH_BY_ID_METRICS =
+            StorageMetrics.operation("EmployeeDAO", StorageMetrics.SEARCH_BY_ID);
+    private static final OperationMetrics SEARCH_BY_SURNAME_METRICS =
+            StorageMetrics.operation("EmployeeDAO", StorageMetrics.SEARCH_BY_SURNAME);
+    private static final OperationMetrics PPS_CHECK_METRICS =
+            StorageMetrics.operation("EmployeeDAO", StorageMetrics.PPS_CHECK);
+
+    // Constructor that takes an existing file. A legacy or unsupported file is refused rather than read
+    // with the current layout; migrate it by name (EmployeeFileMigrator, or the constructor taking a file name).
+    public EmployeeDAO(RandomAccessFile input, RandomAccessFile output) throws IOException {
+        EmployeeFileFormat.prepare(output.getChannel());  // header for a new file, checked for an existing one
         this.input = input;
         this.output = output;
     }
 
+    // Constructor that optionally decodes records straight from a memory-mapped view of the input file
+    public EmployeeDAO(RandomAccessFile input, RandomAccessFile output, boolean memoryMapped) throws IOException {
+        this(input, output);
+        if (memoryMapped) {
+            this.mappedInput = new MappedRecordStore(input.getChannel());
+        }
+    }
+
+    // Constructor that opens the named file itself and keeps a PPS index next to it
+    public EmployeeDAO(String fileName, boolean memoryMapped) throws IOException {
+        this.dataPath = Paths.get(fileName);
+        this.memoryMapped = memoryMapped;
+        this.surnameIndex = new SurnameIndex();
+        openFiles();
+    }
+
+    // Close the files and indexes opened by this DAO
+    public void close() throws IOException {
+        if (wal != null) {
+            checkpoint();
+            wal.close();
+        }
+        if (ppsIndex != null) {
+            ppsIndex.close();
+            freeSlots.close();
+        }
+        input.close();
+        output.close();
+        if (mappedInput != null) {
+            mappedInput.release();
+            mappedInput = null;
+        }
+    }
+
+    // Open the data file and its side files, rebuilding indexes that are missing or stale
+    private void openFiles() throws IOException {
+        EmployeeFileFormat.prepare(dataPath);  // add header or migrate a legacy layout
+        output = new RandomAccessFile(dataPath.toFile(), "rw");
+        wal = WriteAheadLog.open(dataPath, output.getChannel());  // replays writes left by a crash
+        input = new RandomAccessFile(dataPath.toFile(), "r");
+        mappedInput = memoryMapped ? new MappedRecordStore(input.getChannel()) : null;
+        ppsIndex = PpsIndex.open(dataPath, output.getChannel(), wal);
+        freeSlots = FreeSlotList.open(dataPath, output.getChannel());
+        surnameIndex.clear();
+        loadSurnameIndex();
+        wal.startCheckpoints(() -> checkpoint(false));
+    }
+
+    // Copy logged writes into the file and stamp the PPS index to match
+    private void checkpoint() {
+        checkpoint(true);
+    }
+
+    // The background checkpoint does not wait for long readers such as an export; it runs next time
+    private void checkpoint(boolean wait) {
+        synchronized (mutationLock) {
+            if (!wait && !fileLock.writeLock().tryLock()) {
+                return;
+            }
+            if (wait) {
+                fileLock.writeLock().lock();
+            }
+            try {
+                wal.checkpoint();
+                ppsIndex.commit();
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                fileLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Rewrite the file without deleted records and return the number of bytes reclaimed.
+     * Reads keep working while live records are copied; writers wait until the new file is in place.
+     * Record positions change, so positions obtained before compaction must not be reused.
+     */
+    public long compact() throws IOException {
+        if (dataPath == null) {
+            throw new IllegalStateException("Compaction needs a DAO that opened its file by name");
+        }
+        synchronized (mutationLock) {
+            recordWriters.writeLock().lock();
+            try {
+                return compactLocked();
+            } finally {
+                recordWriters.writeLock().unlock();
+            }
+        }
+    }
+
+    // Copy live records to a new file and swap it in; the caller keeps writers out
+    private long compactLocked() throws IOException {
+        checkpoint();  // the copy below reads the file directly
+        Path compacted = dataPath.resolveSibling(dataPath.getFileName() + ".compact");
+        long reclaimed;
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            reclaimed = RecordCompactor.copyLiveRecords(output.getChannel(), target);
+            target.force(true);
+        }
+        if (reclaimed == 0) {
+            Files.delete(compacted);
+            return 0;
+        }
+
+        fileLock.writeLock().lock();
+        try {
+            close();  // drops the mappings of the file and of the PPS index too
+            try {
+                replaceDataFile(compacted);
+            } catch (IOException e) {
+                Files.deleteIfExists(compacted);
+                openFiles();  // carry on with the file as it was
+                throw e;
+            }
+            openFiles();  // the PPS index sees the new length and rebuilds itself
+            freeSlots.clear();
+            cache.clear();  // every record has moved
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+        return reclaimed;
+    }
+
+    // Move the compacted file over the data file. Windows refuses to replace a file that is still
+    // mapped, and a mapping is only unmapped when its buffer is collected, so a mapped DAO asks for
+    // a collection of the mappings close() let go of and tries once more.
+    private void replaceDataFile(Path compacted) throws IOException {
+        try {
+            Files.move(compacted, dataPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (!memoryMapped) {
+                throw e;
+            }
+            System.gc();
+            Files.move(compacted, dataPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
     // Add an employee to the file
     public long addEmployee(Employee employeeToAdd) {
-        long currentRecordStart = 0;
+        long start = System.nanoTime();
+        try {
+            return add(employeeToAdd);
+        } finally {
+            ADD_METRICS.record(start);
+        }
+    }
+
+    private long add(Employee employeeToAdd) {
+        long position = -1;
+        boolean reused = false;   // position was taken from the free list
+        boolean written = false;  // the record has gone to the log or the file
+        long lsn = 0;
+        WriteAheadLog log = null;  // the log lsn belongs to; compaction may swap in a new one once the locks are released
+        synchronized (mutationLock) {
+            // Check if PPS already exists
+            if (isPpsExist(employeeToAdd.getPps())) {
+                JOptionPane.showMessageDialog(null, "PPS number already exists! Employee not added.");
+                return -1; // Return -1 to indicate failure
+            }
+
+            recordWriters.readLock().lock();
+            fileLock.readLock().lock();
+            try {
+                // Fill a deleted slot first, otherwise append to the end of the file
+                position = freeSlots != null ? freeSlots.poll(this::isBlankAt) : -1;
+                reused = position >= 0;
+                if (!reused) {
+                    position = output.length();
+                }
+                StampedLock recordLock = recordLocks.forRecord(position);
+                long stamp = recordLock.writeLock();
+                try {
+                    beginIndexUpdate();
+                    log = wal;
+                    lsn = writeRecord(position, employeeToAdd);
+                    written = true;
+                    endIndexUpdate(null, employeeToAdd, position);
+                } finally {
+                    recordLock.unlockWrite(stamp);
+                }
+            } catch (IOException ioException) {
+                ADD_METRICS.failed();
+                if (reused && !written) {
+                    returnFreeSlot(position);  // the slot is still blank
+                }
+                JOptionPane.showMessageDialog(null, "Error writing to file!");
+                return -1;
+            } finally {
+                fileLock.readLock().unlock();
+                recordWriters.readLock().unlock();
+            }
+        }
 
-        // Check if PPS already exists
-        if (isPpsExist(employeeToAdd.getPps())) {
-            JOptionPane.showMessageDialog(null, "PPS number already exists! Employee not added.");
-            return -1; // Return -1 to indicate failure
+        // Wait outside the lock so concurrent writers share one log force
+        if (!awaitDurable(log, lsn)) {
+            ADD_METRICS.failed();
+            JOptionPane.showMessageDialog(null, "Error writing to file!");
+            return -1;
         }
+        return position;
+    }
 
+    // Put a free slot an add took but did not fill back on the list; if that fails too the slot is
+    // only lost to reuse until the list is next rebuilt
+    private void returnFreeSlot(long position) {
         try {
-            RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord(
-                employeeToAdd.getEmployeeId(), employeeToAdd.getPps(),
-                employeeToAdd.getSurname(), employeeToAdd.getFirstName(),
-                employeeToAdd.getGender(), employeeToAdd.getDepartment(),
-                employeeToAdd.getSalary(), employeeToAdd.getFullTime());
+            freeSlots.add(position);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-            output.seek(output.length());  // Move to the end of the file
-            record.write(output);  // Write the record
-            currentRecordStart = output.length();
-        } catch (IOException ioException) {
-            JOptionPane.showMessageDialog(null, "Error writing to file!");
+
+    /**
+     * Append many employees at once. PPS Numbers are checked against the file and the rest of
+     * the batch; rows with a duplicate or missing PPS Number, an ID below 1 or a blank name are
+     * rejected. Accepted rows are appended in large sequential writes past the end of the file
+     * (not through the log, since no existing record is touched) and the file is forced once.
+     */
+    public ImportReport addEmployees(Iterable<? extends Employee> employees) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        Iterator<? extends Employee> rows = employees.iterator();
+        List<Employee> batch = new ArrayList<>(IMPORT_BATCH);
+        long[] rowNumbers = new long[IMPORT_BATCH];
+        long row = 0;
+        synchronized (mutationLock) {
+            Set<String> seen = startImport();
+            while (rows.hasNext()) {
+                rowNumbers[batch.size()] = ++row;
+                batch.add(rows.next());
+                if (batch.size() == IMPORT_BATCH) {
+                    importBatch(batch, rowNumbers, seen, report);
+                }
+            }
+            importBatch(batch, rowNumbers, seen, report);
+            output.getChannel().force(false);
+        }
+        report.finish(start);
+        return report;
+    }
+
+    /**
+     * Import employees from a CSV file in the EmployeeCsv layout (a header line is optional).
+     * Lines that do not parse are reported as rejects along with those addEmployees would refuse.
+     */
+    public ImportReport importCsv(Path csv) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        List<Employee> batch = new ArrayList<>(IMPORT_BATCH);
+        long[] rowNumbers = new long[IMPORT_BATCH];
+        long row = 0;
+        synchronized (mutationLock) {
+            Set<String> seen = startImport();
+            try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    row++;
+                    if (line.isEmpty() || (row == 1 && EmployeeCsv.isHeader(line))) {
+                        continue;
+                    }
+                    try {
+                        Employee employee = EmployeeCsv.parse(line);
+                        rowNumbers[batch.size()] = row;
+                        batch.add(employee);
+                    } catch (IllegalArgumentException e) {
+                        report.recordReject(row, e.getMessage());
+                    }
+                    if (batch.size() == IMPORT_BATCH) {
+                        importBatch(batch, rowNumbers, seen, report);
+                    }
+                }
+            }
+            importBatch(batch, rowNumbers, seen, report);
+            output.getChannel().force(false);
+        }
+        report.finish(start);
+        return report;
+    }
+
+    // PPS Numbers already in the file when there is no PPS index to ask, otherwise an empty set for the batch
+    private Set<String> startImport() throws IOException {
+        if (wal != null) {
+            checkpoint();  // imported records go straight into the file
+        }
+        Set<String> seen = new HashSet<>();
+        if (ppsIndex == null) {
+            findRecord(cursor -> {
+                if (!cursor.isBlank()) {
+                    seen.add(PpsIndex.normalize(cursor.pps()));
+                }
+                return false;
+            }, null);
+        }
+        return seen;
+    }
+
+    // Check one batch of rows, append the accepted ones and index them, then empty the batch
+    private void importBatch(List<Employee> batch, long[] rowNumbers, Set<String> seen, ImportReport report)
+            throws IOException {
+        List<Employee> accepted = new ArrayList<>(batch.size());
+        String[] surnames = new String[batch.size()];
+        long[] positions = new long[batch.size()];
+        long position = output.length();
+        for (int i = 0; i < batch.size(); i++) {
+            Employee employee = batch.get(i);
+            String pps = PpsIndex.normalize(employee.getPps());
+            String reason = null;
+            if (employee.getEmployeeId() < 1) {
+                reason = "id must be 1 or more";
+            } else if (pps.isEmpty()) {
+                reason = "PPS Number is missing";
+            } else if (!ValidationUtil.isValidName(employee.getSurname())
+                    || !ValidationUtil.isValidName(employee.getFirstName())) {
+                reason = "first name and surname cannot be empty";
+            } else if (!seen.add(pps) || (ppsIndex != null && ppsIndex.find(pps) >= 0)) {
+                reason = "PPS Number " + pps + " already exists";
+            }
+            if (reason != null) {
+                report.recordReject(rowNumbers[i], reason);
+                continue;
+            }
+            surnames[accepted.size()] = employee.getSurname();
+            positions[accepted.size()] = position;
+            accepted.add(employee);
+            position += RandomAccessEmployeeRecord.SIZE;
+        }
+        batch.clear();
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        beginIndexUpdate();
+        new EmployeeRecordCodec(IMPORT_BATCH).writeBatch(output.getChannel(), positions[0], accepted);
+        if (ppsIndex != null) {
+            for (int i = 0; i < accepted.size(); i++) {
+                ppsIndex.put(accepted.get(i).getPps(), positions[i]);
+            }
+            surnameIndex.addAll(surnames, positions, accepted.size());
+            if (wal == null) {
+                ppsIndex.commit();
+            }
+        }
+        report.recordImported(accepted.size());
+    }
+
+    /**
+     * Stream every live record to out as CSV or JSON Lines. The export sees the file as it was
+     * when it started; writes made meanwhile stay in the log until it finishes.
+     */
+    public long export(Writer out, EmployeeExporter.Format format, EmployeeExporter.Progress progress)
+            throws IOException {
+        if (wal != null) {
+            checkpoint();
         }
+        fileLock.readLock().lock();
+        try {
+            return EmployeeExporter.export(input.getChannel(), out, format, progress);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
 
-        return currentRecordStart - RandomAccessEmployeeRecord.SIZE;
+    /** Build a columnar snapshot of the live records for reports. */
+    public EmployeeColumns columnarSnapshot() throws IOException {
+        if (wal != null) {
+            checkpoint();
+        }
+        fileLock.readLock().lock();
+        try {
+            return EmployeeColumns.load(input.getChannel());
+        } finally {
+            fileLock.readLock().unlock();
+        }
     }
 
+    /** Payroll per department and full-time status, scanned in parallel on the common fork-join pool. */
+    public PayrollReport payrollReport() throws IOException {
+        if (wal != null) {
+            checkpoint();
+        }
+        fileLock.readLock().lock();
+        try {
+            return PayrollAggregator.aggregate(input.getChannel());
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
 
     // Modify an employee record
     public void updateEmployee(Employee updatedEmployee, long byteToStart) {
-        Employee existingEmployee = readEmployee(byteToStart);
-        if (existingEmployee == null || existingEmployee.getEmployeeId() <= 0) {
-            JOptionPane.showMessageDialog(null, "Cannot update. Employee does not exist.");
-            return;
+        long start = System.nanoTime();
+        try {
+            update(updatedEmployee, byteToStart);
+        } finally {
+            UPDATE_METRICS.record(start);
         }
+    }
 
+    private void update(Employee updatedEmployee, long byteToStart) {
+        long lsn = 0;
+        WriteAheadLog log = null;
+        StampedLock recordLock = lockForWrite(byteToStart);
+        long stamp = recordLock.writeLock();
         try {
-            RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord(
-                updatedEmployee.getEmployeeId(), updatedEmployee.getPps(),
-                updatedEmployee.getSurname(), updatedEmployee.getFirstName(),
-                updatedEmployee.getGender(), updatedEmployee.getDepartment(),
-                updatedEmployee.getSalary(), updatedEmployee.getFullTime());
+            Employee existingEmployee = readForWrite(byteToStart);
+            if (byteToStart < EmployeeFileFormat.FIRST_RECORD
+                    || existingEmployee == null || existingEmployee.getEmployeeId() <= 0) {
+                JOptionPane.showMessageDialog(null, "Cannot update. Employee does not exist.");
+                return;
+            }
 
-            output.seek(byteToStart);
-            record.write(output);
-        } catch (IOException ioException) {
+            try {
+                beginIndexUpdate();
+                log = wal;
+                lsn = writeRecord(byteToStart, updatedEmployee);
+                endIndexUpdate(existingEmployee, updatedEmployee, byteToStart);
+            } catch (IOException ioException) {
+                UPDATE_METRICS.failed();
+                JOptionPane.showMessageDialog(null, "Error writing to file!");
+            }
+        } finally {
+            unlockForWrite(recordLock, stamp);
+        }
+        if (!awaitDurable(log, lsn)) {
+            UPDATE_METRICS.failed();
             JOptionPane.showMessageDialog(null, "Error writing to file!");
         }
     }
@@ -65,91 +511,397 @@ public class EmployeeDAO {
 
     // Delete an employee record (overwrite with empty record)
     public void deleteEmployee(long byteToStart) {
-        Employee existingEmployee = readEmployee(byteToStart);
-        if (existingEmployee == null || existingEmployee.getEmployeeId() <= 0) {
-            JOptionPane.showMessageDialog(null, "Cannot delete. Employee does not exist.");
-            return;
+        long start = System.nanoTime();
+        try {
+            delete(byteToStart);
+        } finally {
+            DELETE_METRICS.record(start);
         }
+    }
 
+    private void delete(long byteToStart) {
+        long lsn = 0;
+        WriteAheadLog log = null;
+        StampedLock recordLock = lockForWrite(byteToStart);
+        long stamp = recordLock.writeLock();
         try {
-            RandomAccessEmployeeRecord emptyRecord = new RandomAccessEmployeeRecord();
-            output.seek(byteToStart);
-            emptyRecord.write(output);
-        } catch (IOException ioException) {
+            Employee existingEmployee = readForWrite(byteToStart);
+            if (byteToStart < EmployeeFileFormat.FIRST_RECORD
+                    || existingEmployee == null || existingEmployee.getEmployeeId() <= 0) {
+                JOptionPane.showMessageDialog(null, "Cannot delete. Employee does not exist.");
+                return;
+            }
+
+            try {
+                beginIndexUpdate();
+                log = wal;
+                lsn = writeRecord(byteToStart, new RandomAccessEmployeeRecord());
+                endIndexUpdate(existingEmployee, null, byteToStart);
+                if (freeSlots != null) {
+                    freeSlots.add(byteToStart);  // slot can be reused by the next add
+                }
+            } catch (IOException ioException) {
+                DELETE_METRICS.failed();
+                JOptionPane.showMessageDialog(null, "Error deleting record!");
+            }
+        } finally {
+            unlockForWrite(recordLock, stamp);
+        }
+        if (!awaitDurable(log, lsn)) {
+            DELETE_METRICS.failed();
             JOptionPane.showMessageDialog(null, "Error deleting record!");
         }
     }
 
 
-    // Read employee record
+    // Read employee record, from the record cache when it holds it
     public Employee readEmployee(long byteToStart) {
-        Employee employee = null;
+        long start = System.nanoTime();
+        try {
+            return read(byteToStart);
+        } finally {
+            READ_METRICS.record(start);
+        }
+    }
+
+    private Employee read(long byteToStart) {
+        Employee employee = cache.get(byteToStart);
+        if (employee != null) {
+            return employee;
+        }
         RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
+        long stamp = cache.stamp(byteToStart);
+        fileLock.readLock().lock();
         try {
-            input.seek(byteToStart);
-            record.read(input);
+            recordLocks.read(byteToStart, () -> readRecordAt(byteToStart, record));
+            cache.put(byteToStart, record, stamp);
             employee = record;
         } catch (IOException e) {
+            READ_METRICS.failed();
             JOptionPane.showMessageDialog(null, "Error reading record!");
+        } finally {
+            fileLock.readLock().unlock();
         }
         return employee;
     }
     
  // Search employee by ID or Surname
     public Employee searchEmployee(String searchValue, boolean searchById) {
+        long start = System.nanoTime();
+        try {
+            return search(searchValue, searchById);
+        } finally {
+            (searchById ? SEARCH_BY_ID_METRICS : SEARCH_BY_SURNAME_METRICS).record(start);
+        }
+    }
+
+    private Employee search(String searchValue, boolean searchById) {
         Employee employee = null;
         RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
-        long currentByte = 0;
 
+        fileLock.readLock().lock();
         try {
-            while (currentByte < input.length()) {
-                input.seek(currentByte);
-                record.read(input);
+            Predicate<RecordCursor> match;
+            if (searchById) {
+                int id = Integer.parseInt(searchValue);
+                match = cursor -> cursor.id() == id;
+            } else if (surnameIndex != null) {
+                long[] positions = surnameIndex.exact(searchValue);
+                return positions.length == 0 ? null : readEmployee(positions[0]);
+            } else {
+                match = cursor -> cursor.surnameEqualsIgnoreCase(searchValue);
+            }
+            if (findRecord(match, record) >= 0) {
+                employee = record;
+            }
+        } catch (IOException e) {
+            (searchById ? SEARCH_BY_ID_METRICS : SEARCH_BY_SURNAME_METRICS).failed();
+            JOptionPane.showMessageDialog(null, "Error searching for employee.");
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        return employee;
+    }
 
-                // If searching by ID and it matches
-                if (searchById && record.getEmployeeId() == Integer.parseInt(searchValue)) {
-                    employee = record;
-                    break;
-                }
+    // Search all employees with the given surname (case-insensitive), in file order
+    public List<Employee> searchEmployeesBySurname(String surname) {
+        long start = System.nanoTime();
+        try {
+            return searchAllBySurname(surname);
+        } finally {
+            SEARCH_BY_SURNAME_METRICS.record(start);
+        }
+    }
 
-                // If searching by surname and it matches
-                if (!searchById && record.getSurname().trim().equalsIgnoreCase(searchValue)) {
-                    employee = record;
-                    break;
+    private List<Employee> searchAllBySurname(String surname) {
+        if (surnameIndex != null) {
+            return readAllLocked(() -> surnameIndex.exact(surname));
+        }
+        List<Employee> matches = new ArrayList<>();
+        fileLock.readLock().lock();
+        try {
+            // Only matching records are decoded
+            findRecord(cursor -> {
+                if (!cursor.isBlank() && cursor.surnameEqualsIgnoreCase(surname)) {
+                    RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
+                    cursor.decode(record);
+                    matches.add(record);
                 }
-
-                currentByte += RandomAccessEmployeeRecord.SIZE;
-            }
+                return false;
+            }, null);
         } catch (IOException e) {
+            SEARCH_BY_SURNAME_METRICS.failed();
             JOptionPane.showMessageDialog(null, "Error searching for employee.");
+        } finally {
+            fileLock.readLock().unlock();
         }
-        return employee;
+        return matches;
+    }
+
+    // Search all employees whose surname starts with the given prefix, in surname order (indexed DAO only)
+    public List<Employee> searchEmployeesBySurnamePrefix(String prefix) {
+        return surnameIndex != null ? readAllLocked(() -> surnameIndex.prefix(prefix)) : new ArrayList<>();
+    }
+
+    // Search all employees with from <= surname < to, in surname order (indexed DAO only)
+    public List<Employee> searchEmployeesBySurnameRange(String from, String to) {
+        return surnameIndex != null ? readAllLocked(() -> surnameIndex.range(from, to)) : new ArrayList<>();
     }
 
  // Check if a PPS Number already exists in the file
     public boolean isPpsExist(String pps) {
-        RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
-        long currentByte = 0;
+        long start = System.nanoTime();
+        try {
+            return ppsExists(pps);
+        } finally {
+            PPS_CHECK_METRICS.record(start);
+        }
+    }
+
+    private boolean ppsExists(String pps) {
         boolean ppsExists = false;
 
+        fileLock.readLock().lock();
         try {
-            while (currentByte < input.length()) {
-                input.seek(currentByte);
-                record.read(input);
+            if (ppsIndex != null) {
+                return ppsIndex.find(pps) >= 0;
+            }
+            ppsExists = findRecord(cursor -> !cursor.isBlank() && cursor.ppsEquals(pps), null) >= 0;
+        } catch (IOException e) {
+            PPS_CHECK_METRICS.failed();
+            JOptionPane.showMessageDialog(null, "Error checking PPS number.");
+        } finally {
+            fileLock.readLock().unlock();
+        }
 
-                // If the PPS matches, return true
-                if (record.getPps().trim().equalsIgnoreCase(pps)) {
-                    ppsExists = true;
-                    break;
+        return ppsExists;
+    }
+
+    // Mark the PPS index dirty before the file is written
+    private void beginIndexUpdate() {
+        if (ppsIndex != null) {
+            ppsIndex.beginUpdate();
+        }
+    }
+
+    // Move the PPS index entry for the record at byteToStart from its old to its new details
+    private void endIndexUpdate(Employee oldDetails, Employee newDetails, long byteToStart) throws IOException {
+        if (ppsIndex == null) {
+            return;
+        }
+        if (oldDetails != null) {
+            ppsIndex.remove(oldDetails.getPps(), byteToStart);
+            surnameIndex.remove(oldDetails.getSurname(), byteToStart);
+        }
+        if (newDetails != null) {
+            ppsIndex.put(newDetails.getPps(), byteToStart);
+            surnameIndex.add(newDetails.getSurname(), byteToStart);
+        }
+        if (wal == null) {
+            ppsIndex.commit();
+        }
+        // With a log the index stays dirty until the next checkpoint puts the file on disk in step with it
+    }
+
+    // Write a record, through the log when there is one; returns the lsn to wait for (0 when written directly)
+    private long writeRecord(long position, Employee employee) throws IOException {
+        try {
+            if (wal == null) {
+                codec.get().write(output.getChannel(), position, employee);
+                return 0;
+            }
+            if (position >= output.length()) {
+                codec.get().write(output.getChannel(), position, new RandomAccessEmployeeRecord());  // reserve the slot
+            }
+            return wal.append(position, employee);
+        } finally {
+            cache.invalidate(position);
+        }
+    }
+
+    /** Hit and miss counters of the record cache behind readEmployee. */
+    public RecordCache getRecordCache() {
+        return cache;
+    }
+
+    // Wait for a logged write to reach the disk in the log it was appended to; false if forcing the log failed.
+    // A log closed by compaction in the meantime has checkpointed the write, so the wait returns at once.
+    private boolean awaitDurable(WriteAheadLog log, long lsn) {
+        if (lsn == 0) {
+            return true;
+        }
+        try {
+            log.awaitDurable(lsn);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Whether the record at the given position is blank, counting writes still in the log
+    private boolean isBlankAt(long position) throws IOException {
+        RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
+        recordLocks.read(position, () -> readRecordAt(position, record));
+        return record.getEmployeeId() == 0;
+    }
+
+    // Take the shared locks every record write holds and return the record's own lock, still to be locked
+    private StampedLock lockForWrite(long position) {
+        recordWriters.readLock().lock();
+        fileLock.readLock().lock();
+        return recordLocks.forRecord(position);
+    }
+
+    private void unlockForWrite(StampedLock recordLock, long stamp) {
+        recordLock.unlockWrite(stamp);
+        fileLock.readLock().unlock();
+        recordWriters.readLock().unlock();
+    }
+
+    // Read a record whose write lock this thread holds, from the cache when it holds it
+    private Employee readForWrite(long position) {
+        Employee employee = cache.get(position);
+        if (employee != null) {
+            return employee;
+        }
+        RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
+        try {
+            readRecordAt(position, record);
+            return record;
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Error reading record!");
+            return null;
+        }
+    }
+
+    // Build the surname index with one batched scan of the file and a single sorted merge
+    private void loadSurnameIndex() throws IOException {
+        RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
+        int records = (int) Math.max(0, (input.length() - EmployeeFileFormat.FIRST_RECORD) / RandomAccessEmployeeRecord.SIZE);
+        String[] surnames = new String[records];
+        long[] positions = new long[records];
+        int count = 0;
+        long currentByte = EmployeeFileFormat.FIRST_RECORD;
+        while (count < records) {
+            ByteBuffer block = scanCodec.get().readBatch(input.getChannel(), currentByte, SCAN_BATCH);
+            if (!block.hasRemaining()) {
+                break;
+            }
+            while (block.hasRemaining()) {
+                record.read(block);
+                if (record.getEmployeeId() > 0 && count < records) {
+                    surnames[count] = record.getSurname();
+                    positions[count++] = currentByte;
                 }
+                currentByte += RandomAccessEmployeeRecord.SIZE;
+            }
+        }
+        surnameIndex.addAll(surnames, positions, count);
+    }
+
+    // Read the records at the given positions
+    private List<Employee> readAll(long[] positions) {
+        List<Employee> employees = new ArrayList<>(positions.length);
+        for (long position : positions) {
+            Employee employee = readEmployee(position);
+            if (employee != null) {
+                employees.add(employee);
+            }
+        }
+        return employees;
+    }
+
+    // Look up positions and read them without a compaction swap in between
+    private List<Employee> readAllLocked(Supplier<long[]> lookup) {
+        fileLock.readLock().lock();
+        try {
+            return readAll(lookup.get());
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    // Read the record at the given position, from the mapped view when one is open
+    private void readRecordAt(long byteToStart, RandomAccessEmployeeRecord record) throws IOException {
+        if (mappedInput != null) {
+            mappedInput.read(byteToStart, record);
+        } else {
+            codec.get().read(input.getChannel(), byteToStart, record);
+        }
+        if (wal != null) {
+            wal.overlay(byteToStart, record);
+        }
+    }
 
+    /**
+     * Scan from the first record with a cursor over the raw bytes, so records are only decoded
+     * once they match. Leaves the first match in record (when record is not null) and returns
+     * its position, or -1 if none matches.
+     */
+    private long findRecord(Predicate<RecordCursor> match, RandomAccessEmployeeRecord record) throws IOException {
+        RecordCursor cursor = new RecordCursor();
+        long length = inputLength();
+        long currentByte = EmployeeFileFormat.FIRST_RECORD;
+
+        while (currentByte + RandomAccessEmployeeRecord.SIZE <= length) {
+            if (mappedInput != null) {
+                if (match.test(pendingOr(currentByte, mappedInput.cursor(currentByte, cursor)))) {
+                    return matched(cursor, record, currentByte);
+                }
                 currentByte += RandomAccessEmployeeRecord.SIZE;
+            } else {
+                // One read per block of records instead of one per field
+                ByteBuffer block = scanCodec.get().readBatch(input.getChannel(), currentByte, SCAN_BATCH);
+                if (!block.hasRemaining()) {
+                    break;
+                }
+                for (int at = 0; at < block.limit(); at += RandomAccessEmployeeRecord.SIZE) {
+                    if (match.test(pendingOr(currentByte, cursor.at(block, at)))) {
+                        return matched(cursor, record, currentByte);
+                    }
+                    currentByte += RandomAccessEmployeeRecord.SIZE;
+                }
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error checking PPS number.");
         }
+        return -1;
+    }
 
-        return ppsExists;
+    // Point the cursor at the logged image of the record when one is waiting for a checkpoint
+    private RecordCursor pendingOr(long position, RecordCursor cursor) {
+        ByteBuffer image = wal != null ? wal.pendingImage(position) : null;
+        return image != null ? cursor.at(image, 0) : cursor;
+    }
+
+    private static long matched(RecordCursor cursor, RandomAccessEmployeeRecord record, long position) {
+        if (record != null) {
+            cursor.decode(record);
+        }
+        return position;
+    }
+
+    // Length of the file being read
+    private long inputLength() throws IOException {
+        return mappedInput != null ? mappedInput.length() : input.length();
     }
 
 }
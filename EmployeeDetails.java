@@ -2,6 +2,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.List;
 
 public class EmployeeDetails extends JFrame implements EmployeeObserver {
     private EmployeeController controller;
@@ -14,15 +16,43 @@ public class EmployeeDetails extends JFrame implements EmployeeObserver {
     private JTextField departmentField;
     private JTextField salaryField;
     private JTextField fullTimeField;
+    private JLabel statusLabel;
+    // Actions that change or scan the whole file, enabled once the file is loaded
+    private JMenuItem[] loadedOnlyItems;
     // Currently displayed employee
     private Employee currentEmployee;
+    // When startup began, for timing the first screen and the full load
+    private final long startNanos;
+    private boolean firstScreenTimed;
+    // Startup milestones, recorded with the time since startNanos and shown over JMX with the storage metrics
+    private static final OperationMetrics WINDOW_SHOWN =
+            StorageMetrics.operation("EmployeeDetails", StorageMetrics.WINDOW_SHOWN);
+    private static final OperationMetrics FIRST_EMPLOYEE_SHOWN =
+            StorageMetrics.operation("EmployeeDetails", StorageMetrics.FIRST_EMPLOYEE_SHOWN);
+    private static final OperationMetrics ALL_EMPLOYEES_LOADED =
+            StorageMetrics.operation("EmployeeDetails", StorageMetrics.ALL_EMPLOYEES_LOADED);
 
     public EmployeeDetails() {
+        this(System.nanoTime());
+    }
+
+    /** Show the frame at once and load the file in the background; startNanos is when startup began. */
+    public EmployeeDetails(long startNanos) {
         super("Employee Details");
-        controller = new EmployeeController();
-        controller.addObserver(this);  // register as observer for data changes
+        this.startNanos = startNanos;
         setupUI();
-        loadFirstEmployee();  // display the first existing employee, if any
+        controller = EmployeeController.openInBackground(new EmployeeController.LoadListener() {
+            @Override
+            public void loadProgress(int slotsLoaded, int totalSlots) {
+                SwingUtilities.invokeLater(() -> showLoadProgress(slotsLoaded, totalSlots));
+            }
+
+            @Override
+            public void loadFinished(IOException failure) {
+                SwingUtilities.invokeLater(() -> showLoadFinished(failure));
+            }
+        });
+        controller.addObserver(this, SwingUtilities::invokeLater);  // register as observer for data changes, called on the EDT
     }
 
     private void setupUI() {
@@ -50,7 +80,12 @@ public class EmployeeDetails extends JFrame implements EmployeeObserver {
         navPanel.add(prevButton);
         navPanel.add(nextButton);
         navPanel.add(lastButton);
-        add(navPanel, BorderLayout.SOUTH);
+        statusLabel = new JLabel("Loading employees...");
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(0, 10, 5, 10));
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(navPanel, BorderLayout.CENTER);
+        southPanel.add(statusLabel, BorderLayout.SOUTH);
+        add(southPanel, BorderLayout.SOUTH);
 
         // Menu bar with actions
         JMenuBar menuBar = new JMenuBar();
@@ -63,15 +98,22 @@ public class EmployeeDetails extends JFrame implements EmployeeObserver {
         JMenuItem deleteItem = new JMenuItem("Delete");
         JMenuItem searchByIdItem = new JMenuItem("Search by ID");
         JMenuItem searchBySurnameItem = new JMenuItem("Search by Surname");
+        JMenuItem summaryItem = new JMenuItem("Employee Summary");
         actionMenu.add(addItem);
         actionMenu.add(editItem);
         actionMenu.add(deleteItem);
         actionMenu.addSeparator();
         actionMenu.add(searchByIdItem);
         actionMenu.add(searchBySurnameItem);
+        actionMenu.addSeparator();
+        actionMenu.add(summaryItem);
         menuBar.add(fileMenu);
         menuBar.add(actionMenu);
         setJMenuBar(menuBar);
+        loadedOnlyItems = new JMenuItem[] {addItem, editItem, deleteItem, summaryItem};
+        for (JMenuItem item : loadedOnlyItems) {
+            item.setEnabled(false);
+        }
 
         // Action listeners for menu items
         addItem.addActionListener(e -> {
@@ -107,6 +149,26 @@ public class EmployeeDetails extends JFrame implements EmployeeObserver {
             SearchBySurnameDialog searchDialog = new SearchBySurnameDialog(EmployeeDetails.this, controller);
             searchDialog.setVisible(true);
         });
+        summaryItem.addActionListener(e -> {
+            // Snapshot the file off the EDT, then list every employee
+            summaryItem.setEnabled(false);  // re-enabled when the dialog opens
+            new SwingWorker<EmployeeTableModel, Void>() {
+                @Override
+                protected EmployeeTableModel doInBackground() throws Exception {
+                    return controller.summaryTableModel();
+                }
+
+                @Override
+                protected void done() {
+                    summaryItem.setEnabled(true);
+                    try {
+                        new EmployeeSummaryDialog(EmployeeDetails.this, get()).setVisible(true);
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            }.execute();
+        });
         exitItem.addActionListener(e -> {
             controller.close();
             System.exit(0);
@@ -132,14 +194,7 @@ public class EmployeeDetails extends JFrame implements EmployeeObserver {
         });
         lastButton.addActionListener(e -> {
             // Find and display the last existing employee
-            Employee last = null;
-            for (int id = 100; id >= 1; id--) {
-                Employee emp = controller.searchById(id);
-                if (emp != null) {
-                    last = emp;
-                    break;
-                }
-            }
+            Employee last = controller.getLastEmployee();
             if (last != null) {
                 displayEmployee(last);
             }
@@ -150,14 +205,40 @@ public class EmployeeDetails extends JFrame implements EmployeeObserver {
         setLocationRelativeTo(null);
     }
 
+    /** Called on the EDT after each chunk of the background load. */
+    private void showLoadProgress(int slotsLoaded, int totalSlots) {
+        statusLabel.setText(String.format("Loading employees... %,d of %,d records", slotsLoaded, totalSlots));
+        if (currentEmployee == null) {
+            loadFirstEmployee();
+        }
+        if (currentEmployee != null && !firstScreenTimed) {
+            // Usable from here: a record is on screen and can be navigated
+            firstScreenTimed = true;
+            FIRST_EMPLOYEE_SHOWN.record(startNanos);
+        }
+    }
+
+    /** Called on the EDT once the background load is over. */
+    private void showLoadFinished(IOException failure) {
+        if (failure != null) {
+            failure.printStackTrace();
+            statusLabel.setText("Could not load the employee file: " + failure.getMessage());
+            return;
+        }
+        for (JMenuItem item : loadedOnlyItems) {
+            item.setEnabled(true);
+        }
+        if (currentEmployee == null) {
+            loadFirstEmployee();
+        }
+        ALL_EMPLOYEES_LOADED.record(startNanos);
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        statusLabel.setText(String.format("%,d employees loaded in %,d ms", controller.employeeCount(), millis));
+    }
+
     /** Load the first non-empty employee record into the display. */
     private void loadFirstEmployee() {
-        Employee first = null;
-        for (int id = 1; id <= 100; id++) {
-            first = controller.searchById(id);
-            if (first != null) break;
-        }
-        displayEmployee(first);
+        displayEmployee(controller.getFirstEmployee());
     }
 
     /** Display the given employee's details in the UI fields (or clear fields if null). */
@@ -185,29 +266,37 @@ public class EmployeeDetails extends JFrame implements EmployeeObserver {
         }
     }
 
-    /** Observer callback: called when employee data changes in the controller. */
+    /** Observer callback: called on the EDT with a batch of changes made in the controller. */
     @Override
-    public void employeeDataChanged() {
-        // If current record was edited or deleted, refresh the display accordingly
-        if (currentEmployee != null) {
-            Employee updated = controller.searchById(currentEmployee.getId());
-            if (updated == null) {
-                // Current employee was deleted or no longer exists; load the first available record
+    public void employeesChanged(List<EmployeeChange> changes) {
+        if (currentEmployee == null) {
+            // If no current employee (e.g., list was empty and one was added), load the first new record
+            loadFirstEmployee();
+            return;
+        }
+        // Only a change to the displayed record needs the display refreshed
+        for (EmployeeChange change : changes) {
+            if (change.getEmployeeId() != currentEmployee.getId()) {
+                continue;
+            }
+            if (change.getType() == EmployeeChange.Type.DELETED) {
+                // Current employee was deleted; load the first available record
                 loadFirstEmployee();
             } else {
                 // Current employee was updated; refresh its details
-                displayEmployee(updated);
+                displayEmployee(controller.searchById(change.getEmployeeId()));
             }
-        } else {
-            // If no current employee (e.g., list was empty and one was added), load the first new record
-            loadFirstEmployee();
+            return;
         }
     }
 
     public static void main(String[] args) {
+        long startNanos = System.nanoTime();
+        StorageMetrics.startLogging();
         SwingUtilities.invokeLater(() -> {
-            EmployeeDetails employeeDetails = new EmployeeDetails();
+            EmployeeDetails employeeDetails = new EmployeeDetails(startNanos);
             employeeDetails.setVisible(true);
+            WINDOW_SHOWN.record(startNanos);
         });
     }
 
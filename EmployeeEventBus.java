@@ -0,0 +1,177 @@
+/*
+ *
+ * This is the asynchronous, coalescing delivery of employee change events
+ *
+ * */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects change events from writers and hands them to observers on its own thread. publish()
+ * only adds to a list, so a writer never waits for an observer. The first event after a quiet
+ * spell starts a short window; everything published in that window, such as a whole burst of
+ * adds, is delivered as one batch with the changes to each ID folded into one.
+ *
+ * Each observer is called through the executor it subscribed with (SwingUtilities::invokeLater
+ * for views), one batch at a time and in publishing order.
+ *
+ * A writer that publishes only after its change is durable takes a Ticket with reserve() while
+ * it still holds the lock that orders the writers, and later publishes or cancels through it. A
+ * change is queued only once every earlier ticket has been dealt with, so an edit and a delete of
+ * the same ID arrive in the order they were made even if the delete's wait ends first.
+ */
+public class EmployeeEventBus {
+    private static final long COALESCE_MILLIS = 50;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "employee-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private List<EmployeeChange> pending = new ArrayList<>();  // guarded by this
+    private boolean dispatchQueued;                             // guarded by this
+    private boolean closed;                                     // guarded by this
+    private final ArrayDeque<Ticket> reserved = new ArrayDeque<>();  // guarded by this; in reserve() order
+
+    private static final class Subscription {
+        final EmployeeObserver observer;
+        final Executor executor;
+
+        Subscription(EmployeeObserver observer, Executor executor) {
+            this.observer = observer;
+            this.executor = executor;
+        }
+    }
+
+    /** Deliver batches to the observer on the bus's own thread. */
+    public void subscribe(EmployeeObserver observer) {
+        subscribe(observer, Runnable::run);
+    }
+
+    /** Deliver batches to the observer through the given executor. */
+    public void subscribe(EmployeeObserver observer, Executor executor) {
+        subscriptions.add(new Subscription(observer, executor));
+    }
+
+    public void unsubscribe(EmployeeObserver observer) {
+        subscriptions.removeIf(subscription -> subscription.observer == observer);
+    }
+
+    /** A change's place in the order of events, reserved before the change itself is published. */
+    public static final class Ticket {
+        private EmployeeChange change;
+        private boolean done;
+
+        private Ticket() {
+        }
+    }
+
+    /** Take the next place in the order of events; call it under the lock that orders the writers. */
+    public synchronized Ticket reserve() {
+        Ticket ticket = new Ticket();
+        if (!closed) {
+            reserved.add(ticket);
+        }
+        return ticket;
+    }
+
+    /** Publish the change in the ticket's place: it is queued once every earlier ticket is done. */
+    public synchronized void publish(Ticket ticket, EmployeeChange change) {
+        ticket.change = change;
+        ticket.done = true;
+        while (!reserved.isEmpty() && reserved.peekFirst().done) {
+            EmployeeChange next = reserved.pollFirst().change;
+            if (next != null) {
+                enqueue(next);
+            }
+        }
+    }
+
+    /** Give up a ticket whose change is not to be published, so later ones are not held back. */
+    public void cancel(Ticket ticket) {
+        publish(ticket, null);
+    }
+
+    /** Queue a change for the next batch, after any reserved earlier; never blocks on observers. */
+    public void publish(EmployeeChange change) {
+        publish(reserve(), change);
+    }
+
+    // Add a change to the next batch, scheduling a dispatch if none is due. Dropped once the bus is closed.
+    private synchronized void enqueue(EmployeeChange change) {
+        if (closed) {
+            return;
+        }
+        pending.add(change);
+        if (!dispatchQueued) {
+            dispatchQueued = true;
+            // Scheduled under the lock, so close() cannot shut the dispatcher down in between
+            dispatcher.schedule(this::dispatch, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Deliver whatever is pending now and stop the bus; later events are dropped. */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dispatcher.execute(this::dispatch);
+            dispatcher.shutdown();
+        }
+        try {
+            dispatcher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch() {
+        List<EmployeeChange> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new ArrayList<>();
+            dispatchQueued = false;
+        }
+        List<EmployeeChange> changes = coalesce(batch);
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.executor.execute(() -> {
+                try {
+                    subscription.observer.employeesChanged(changes);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();  // one failing observer must not stop the others
+                }
+            });
+        }
+    }
+
+    /** Fold the changes to each ID into one, keeping IDs in the order they first changed. */
+    static List<EmployeeChange> coalesce(List<EmployeeChange> batch) {
+        Map<Integer, EmployeeChange> byId = new LinkedHashMap<>();
+        for (EmployeeChange change : batch) {
+            EmployeeChange before = byId.get(change.getEmployeeId());
+            EmployeeChange folded = before == null ? change : before.then(change);
+            if (folded == null) {
+                byId.remove(change.getEmployeeId());
+            } else {
+                byId.put(change.getEmployeeId(), folded);
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(byId.values()));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *
+ * This is the streaming exporter from the employee file to CSV or JSON Lines
+ *
+ * */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scans the employee file front to back with large reads and writes every live record,
+ * skipping deleted (ID 0) ones. Only one read buffer of records and one formatted line are
+ * held at a time, so heap use does not grow with the file. Usage:
+ *
+ *   java EmployeeExporter employees.dat out.csv [csv|jsonl]
+ */
+public class EmployeeExporter {
+    private static final int BATCH = 4096;  // records read per call (about 700 KB)
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    /** Output formats. */
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    /** Told how far the export has got after every read buffer. */
+    public interface Progress {
+        void update(long recordsScanned, long totalRecords, long recordsExported);
+    }
+
+    private EmployeeExporter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: java EmployeeExporter <employee file> <output file> [csv|jsonl]");
+            System.exit(2);
+        }
+        Format format = args.length == 3 && args[2].equalsIgnoreCase("jsonl") ? Format.JSON_LINES : Format.CSV;
+        long start = System.nanoTime();
+        long exported;
+        try (FileChannel data = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ);
+             Writer out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            EmployeeFileFormat.checkHeader(data);
+            exported = export(data, out, format, (scanned, total, written) ->
+                    System.out.printf("\r%d%% (%d records)", total == 0 ? 100 : scanned * 100 / total, written));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%nExported %d records in %.2f s (%.0f records/s)%n", exported, seconds, exported / seconds);
+    }
+
+    /** Export every live record of the employee file to the given path, returning the number written. */
+    public static long export(FileChannel data, Path target, Format format, Progress progress) throws IOException {
+        try (Writer out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            return export(data, out, format, progress);
+        }
+    }
+
+    /**
+     * Export every live record of the employee file to out, returning the number written.
+     * The writer is flushed but not closed; progress may be null.
+     */
+    public static long export(FileChannel data, Writer out, Format format, Progress progress) throws IOException {
+        Writer writer = out instanceof BufferedWriter ? out : new BufferedWriter(out, WRITE_BUFFER);
+        EmployeeRecordCodec codec = new EmployeeRecordCodec(BATCH);
+        RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
+        StringBuilder line = new StringBuilder(256);
+        long totalRecords = Math.max(0, (data.size() - EmployeeFileFormat.FIRST_RECORD) / EmployeeRecordCodec.SIZE);
+        long scanned = 0;
+        long exported = 0;
+
+        if (format == Format.CSV) {
+            writer.write(EmployeeCsv.HEADER);
+            writer.write('\n');
+        }
+        long currentByte = EmployeeFileFormat.FIRST_RECORD;
+        while (scanned < totalRecords) {
+            ByteBuffer block = codec.readBatch(data, currentByte, (int) Math.min(BATCH, totalRecords - scanned));
+            if (!block.hasRemaining()) {
+                break;
+            }
+            int records = block.remaining() / EmployeeRecordCodec.SIZE;
+            while (block.hasRemaining()) {
+                record.read(block);
+                if (record.getEmployeeId() == 0) {
+                    continue;
+                }
+                line.setLength(0);
+                if (format == Format.CSV) {
+                    EmployeeCsv.append(record, line);
+                } else {
+                    EmployeeJson.append(record, line);
+                }
+                line.append('\n');
+                writer.append(line);
+                exported++;
+            }
+            scanned += records;
+            currentByte += (long) records * EmployeeRecordCodec.SIZE;
+            if (progress != null) {
+                progress.update(scanned, totalRecords, exported);
+            }
+        }
+        writer.flush();
+        return exported;
+    }
+}
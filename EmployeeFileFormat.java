@@ -0,0 +1,184 @@
+/*
+ *
+ * This is the definition of the versioned employee file format
+ *
+ * */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Every employee file starts with a header that fills exactly one record slot, so record
+ * positions stay multiples of the record size. The header names the format version and the
+ * record layout it was written with; records follow it in the layout of EmployeeRecordCodec.
+ *
+ * Files written before the header existed come in two layouts: 175-byte records with 20-char
+ * strings and a char gender (RandomFile / EmployeeDAO), and 1200-byte slots with 15-char
+ * strings and a boolean gender (EmployeeController). prepare() converts either one in place
+ * with EmployeeFileMigrator the first time the file is opened.
+ */
+public final class EmployeeFileFormat {
+    public static final int MAGIC = 0x454D5046;  // "EMPF"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = EmployeeRecordCodec.SIZE;  // header fills the first record slot
+    public static final long FIRST_RECORD = HEADER_SIZE;              // position of the first record
+
+    static final int LEGACY_CONTROLLER_SLOT = 1200;
+    static final int LEGACY_CONTROLLER_USED = 134;  // bytes of a legacy controller slot holding data
+    // The old controller started every file with 100 blank 175-byte records before writing its slots
+    static final long LEGACY_CONTROLLER_PREFIX = 100L * EmployeeRecordCodec.SIZE;
+    private static final int CONTROLLER_SLOTS_CHECKED = 64;  // slots from the start looked at by detect()
+    private static final byte GENDER_AS_CHAR = 1;
+
+    /** Layouts an employee file can be in. */
+    public enum Layout {
+        EMPTY,               // zero-length file
+        CURRENT,             // header followed by codec records
+        LEGACY_RECORD,       // headerless 175-byte records
+        LEGACY_CONTROLLER    // headerless 1200-byte controller slots
+    }
+
+    private EmployeeFileFormat() {
+    }
+
+    /** Make sure the file exists and is in the current format, migrating a legacy file in place. */
+    public static void prepare(Path file) throws IOException {
+        Layout layout;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            layout = detect(channel);
+            if (layout == Layout.EMPTY) {
+                writeHeader(channel);
+                return;
+            }
+            if (layout == Layout.CURRENT) {
+                checkHeader(channel);
+                return;
+            }
+        }
+        EmployeeFileMigrator.migrateInPlace(file, layout);
+    }
+
+    /**
+     * Check an already open file: an empty file gets a header, a current file has its header
+     * validated, and a legacy file is rejected because it has to be migrated by name.
+     */
+    public static void prepare(FileChannel channel) throws IOException {
+        Layout layout = detect(channel);
+        if (layout == Layout.EMPTY) {
+            writeHeader(channel);
+        } else if (layout == Layout.CURRENT) {
+            checkHeader(channel);
+        } else {
+            throw new IOException("Employee file is in the " + layout + " layout; run EmployeeFileMigrator first");
+        }
+    }
+
+    /** Work out which layout the file is in. */
+    public static Layout detect(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return Layout.EMPTY;
+        }
+        if (size >= 4 && readBytes(channel, 0, 4).getInt() == MAGIC) {
+            return Layout.CURRENT;
+        }
+        if (looksLikeControllerSlots(channel)) {
+            return Layout.LEGACY_CONTROLLER;
+        }
+        return Layout.LEGACY_RECORD;
+    }
+
+    /** Write the current header at the start of the file. */
+    public static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) HEADER_SIZE);
+        header.putShort((short) EmployeeRecordCodec.SIZE);
+        header.putShort((short) EmployeeRecordCodec.NAME_LENGTH);
+        header.put(GENDER_AS_CHAR);
+        header.clear();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /** Fail unless the header describes a layout this code can read. */
+    public static void checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = readBytes(channel, 0, 13);
+        int magic = header.getInt();
+        short version = header.getShort();
+        short headerSize = header.getShort();
+        short recordSize = header.getShort();
+        short nameLength = header.getShort();
+        byte gender = header.get();
+        if (magic != MAGIC) {
+            throw new IOException("Not an employee file");
+        }
+        if (version > VERSION) {
+            throw new IOException("Employee file version " + version + " is newer than this program (" + VERSION + ")");
+        }
+        if (headerSize != HEADER_SIZE || recordSize != EmployeeRecordCodec.SIZE
+                || nameLength != EmployeeRecordCodec.NAME_LENGTH || gender != GENDER_AS_CHAR) {
+            throw new IOException("Unsupported employee record layout: " + recordSize + "-byte records, "
+                    + nameLength + "-char names");
+        }
+    }
+
+    /**
+     * Utility: True if the file reads as legacy controller slots. The old controller wrote its
+     * 17,500-byte blank prefix, then each employee's 134 bytes at (ID - 1) * 1200, so the file
+     * ends with the prefix or just after the data of its last slot, and the rest of every slot
+     * is zero. A slot holding data starts with a positive ID. The first slots and the last one
+     * are looked at; 175-byte records fail on the fields that cross the end of the slot data.
+     */
+    private static boolean looksLikeControllerSlots(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long last = size % LEGACY_CONTROLLER_SLOT;
+        if (size != LEGACY_CONTROLLER_PREFIX && last != LEGACY_CONTROLLER_USED && last != 0) {
+            return false;
+        }
+        long slots = (size + LEGACY_CONTROLLER_SLOT - 1) / LEGACY_CONTROLLER_SLOT;
+        for (long slot = 0; slot < slots; slot++) {
+            if (slot == CONTROLLER_SLOTS_CHECKED) {
+                slot = slots - 1;
+            }
+            long start = slot * LEGACY_CONTROLLER_SLOT;
+            ByteBuffer contents = readBytes(channel, start, (int) Math.min(LEGACY_CONTROLLER_SLOT, size - start));
+            if (!isControllerSlot(contents)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Utility: True if the bytes of one slot are blank, or a positive ID and data followed by zeros. */
+    private static boolean isControllerSlot(ByteBuffer slot) {
+        boolean blank = true;
+        for (int at = slot.position(); at < slot.limit(); at++) {
+            if (slot.get(at) != 0) {
+                if (at - slot.position() >= LEGACY_CONTROLLER_USED) {
+                    return false;
+                }
+                blank = false;
+            }
+        }
+        return blank || (slot.remaining() >= LEGACY_CONTROLLER_USED && slot.getInt(slot.position()) > 0);
+    }
+
+    private static ByteBuffer readBytes(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *
+ * This is the streaming converter from legacy employee files to the current format
+ *
+ * */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts an employee file in either legacy layout to the current format with large
+ * sequential reads and writes. Deleted (ID 0) records are dropped on the way, so the
+ * result is also compacted. Bytes at the end of the file too short to be a record are
+ * reported and kept in a .partial file next to the source, and a file that holds data but
+ * yields no records is never replaced. Usage:
+ *
+ *   java EmployeeFileMigrator employees.dat [target.dat]
+ *
+ * Without a target the file is converted in place.
+ */
+public class EmployeeFileMigrator {
+    private static final int BLOCK_BYTES = 1 << 20;  // bytes read from the source per call
+    private static final int LEGACY_STRING_LENGTH = 15;
+
+    private EmployeeFileMigrator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java EmployeeFileMigrator <employee file> [target file]");
+            System.exit(2);
+        }
+        Path source = Paths.get(args[0]);
+        long start = System.nanoTime();
+        EmployeeFileFormat.Layout layout;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            layout = EmployeeFileFormat.detect(channel);
+        }
+        if (layout == EmployeeFileFormat.Layout.CURRENT || layout == EmployeeFileFormat.Layout.EMPTY) {
+            System.out.println(source + " is already in the current format");
+            return;
+        }
+        System.out.println("Converting " + source + " from the " + layout + " layout");
+        long records = args.length == 2 ? migrate(source, Paths.get(args[1]), layout) : migrateInPlace(source, layout);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Migrated %d records in %.2f s (%.0f records/s)%n", records, seconds, records / seconds);
+    }
+
+    /**
+     * Convert the file in place through a temporary file, returning the number of records kept.
+     * The file is left as it is if it holds data but no record could be read from it.
+     */
+    public static long migrateInPlace(Path file, EmployeeFileFormat.Layout layout) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".migrating");
+        long records = migrate(file, temp, layout);
+        if (records == 0 && holdsData(file)) {
+            Files.delete(temp);
+            throw new IOException("No employee records could be read from " + file + " as a " + layout
+                    + " file; it was left unchanged");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // Side files describe positions in the old layout
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".pps"));
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".free"));
+        return records;
+    }
+
+    /** Convert source, in the given legacy layout, into a new current-format file at target. */
+    public static long migrate(Path source, Path target, EmployeeFileFormat.Layout layout) throws IOException {
+        int slotSize = layout == EmployeeFileFormat.Layout.LEGACY_CONTROLLER
+                ? EmployeeFileFormat.LEGACY_CONTROLLER_SLOT : EmployeeRecordCodec.SIZE;
+        int slotsPerBlock = BLOCK_BYTES / slotSize;
+        ByteBuffer in = ByteBuffer.allocate(slotsPerBlock * slotSize);
+        ByteBuffer out = ByteBuffer.allocate(slotsPerBlock * EmployeeRecordCodec.SIZE);
+        RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
+        long records = 0;
+        boolean controller = layout == EmployeeFileFormat.Layout.LEGACY_CONTROLLER;
+
+        try (FileChannel reader = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel writer = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            EmployeeFileFormat.writeHeader(writer);
+            long readFrom = 0;
+            long writeTo = EmployeeFileFormat.HEADER_SIZE;
+            while (true) {
+                in.clear();
+                while (in.hasRemaining()) {
+                    if (reader.read(in, readFrom + in.position()) < 0) {
+                        break;
+                    }
+                }
+                in.flip();
+                int length = in.limit();
+                if (length == 0) {
+                    break;
+                }
+                readFrom += length;
+                // Only the last block can end in part of a slot; the last controller slot ends after its data
+                int whole = length - length % slotSize;
+                if (controller && length - whole >= EmployeeFileFormat.LEGACY_CONTROLLER_USED) {
+                    whole = length;
+                }
+
+                out.clear();
+                for (int at = 0; at < whole; at += slotSize) {
+                    if (in.getInt(at) == 0) {
+                        continue;  // deleted record
+                    }
+                    in.position(at);
+                    if (slotSize == EmployeeRecordCodec.SIZE) {
+                        out.put(in.array(), at, slotSize);  // same record layout, copy as is
+                    } else {
+                        decodeControllerSlot(in, record);
+                        EmployeeRecordCodec.encode(record, out);
+                    }
+                    records++;
+                }
+                out.flip();
+                while (out.hasRemaining()) {
+                    writeTo += writer.write(out, writeTo);
+                }
+                if (whole < length) {
+                    keepPartial(source, in, whole, readFrom - length + whole);
+                }
+            }
+            writer.force(true);
+        }
+        return records;
+    }
+
+    // Save the bytes after the last whole slot to source.partial and say so, unless they are all zero
+    private static void keepPartial(Path source, ByteBuffer in, int from, long position) throws IOException {
+        in.position(from);
+        if (!holdsData(in.duplicate())) {
+            return;
+        }
+        Path partial = source.resolveSibling(source.getFileName() + ".partial");
+        int bytes = in.remaining();
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (in.hasRemaining()) {
+                channel.write(in);
+            }
+        }
+        System.err.println(source + " ends with " + bytes + " bytes at position " + position
+                + " that do not make a whole record; they were saved to " + partial);
+    }
+
+    // True if any byte of the file is not zero
+    private static boolean holdsData(Path file) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(block) >= 0) {
+                block.flip();
+                if (holdsData(block)) {
+                    return true;
+                }
+                block.clear();
+            }
+        }
+        return false;
+    }
+
+    private static boolean holdsData(ByteBuffer bytes) {
+        while (bytes.hasRemaining()) {
+            if (bytes.get() != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Decode a legacy 1200-byte controller slot: id, pps, two names, boolean gender, department,
+    // salary, full time, with 15-char strings. The old add dialog passed the names to Employee in
+    // swapped order, so the first name field of a slot holds the surname that was typed and shown.
+    private static void decodeControllerSlot(ByteBuffer slot, Employee employee) {
+        employee.setEmployeeId(slot.getInt());
+        employee.setPps(readLegacyString(slot));
+        employee.setSurname(readLegacyString(slot));
+        employee.setFirstName(readLegacyString(slot));
+        employee.setGender(slot.get() != 0 ? 'M' : 'F');
+        employee.setDepartment(readLegacyString(slot));
+        employee.setSalary(slot.getDouble());
+        employee.setFullTime(slot.get() != 0);
+    }
+
+    private static String readLegacyString(ByteBuffer slot) {
+        char[] chars = new char[LEGACY_STRING_LENGTH];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = slot.getChar();
+        }
+        return new String(chars).replace('\0', ' ').trim();
+    }
+}
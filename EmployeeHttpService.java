@@ -0,0 +1,334 @@
+/*
+ *
+ * This is the headless HTTP/JSON service over EmployeeController
+ *
+ * */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the employee records as JSON on the JDK HttpServer, on top of the same controller the
+ * Swing frame uses:
+ *
+ *   GET    /employees?after=ID&limit=N   page of employees in ID order (next page: after=last ID)
+ *   GET    /employees?surname=NAME       every employee with the surname
+ *   GET    /employees?prefix=TEXT        every employee whose surname starts with the text
+ *   GET    /employees/ID                 one employee
+ *   POST   /employees                    add (201, 409 if the ID is in use)
+ *   PUT    /employees/ID                 edit (the ID in the path wins over one in the body)
+ *   DELETE /employees/ID                 delete (204)
+ *
+ * A change the employee file could not take is answered with 500, not 404 or 409.
+ *
+ * Each request runs on its own virtual thread when the JVM has them (Java 21+), so requests
+ * waiting on a log force cost no platform thread; older JVMs fall back to a fixed pool.
+ */
+public class EmployeeHttpService {
+    public static final String PATH = "/employees";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 4096;          // connections the OS queues before accept
+    private static final int PLATFORM_THREADS = 256;  // pool size when virtual threads are unavailable
+    private static final int DEFAULT_PAGE = 100;
+    private static final int MAX_PAGE = 1000;
+    private static final int MAX_BODY = 64 * 1024;
+
+    private final EmployeeController controller;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** Bind the service to the given port (0 picks a free one); call start() to begin serving. */
+    public EmployeeHttpService(EmployeeController controller, int port) throws IOException {
+        this.controller = controller;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = newPerRequestExecutor("http-worker");
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        StorageMetrics.startLogging();
+        EmployeeController controller = new EmployeeController();
+        EmployeeHttpService service = new EmployeeHttpService(controller, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.stop();
+            controller.close();
+        }));
+        service.start();
+        System.out.println("Serving " + controller.employeeCount() + " employees on http://localhost:"
+                + service.getPort() + PATH);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stop accepting requests, give running ones a second to finish, and stop the workers. */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /** Port the service is bound to. */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** One virtual thread per task on Java 21+, otherwise a fixed pool of daemon platform threads. */
+    static ExecutorService newPerRequestExecutor(String name) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(PLATFORM_THREADS, task -> {
+                Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String rest = path.length() > PATH.length() ? path.substring(PATH.length() + 1) : "";
+            if (!path.equals(PATH) && (!path.startsWith(PATH + "/") || rest.isEmpty() || rest.contains("/"))) {
+                send(exchange, 404, error("no such resource"));
+                return;
+            }
+            Integer id = rest.isEmpty() ? null : parseId(rest);
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    if (id == null) {
+                        list(exchange);
+                    } else {
+                        get(exchange, id);
+                    }
+                    break;
+                case "POST":
+                    if (id != null) {
+                        send(exchange, 405, error("POST to " + PATH));
+                    } else {
+                        add(exchange);
+                    }
+                    break;
+                case "PUT":
+                    if (id == null) {
+                        send(exchange, 405, error("PUT to " + PATH + "/ID"));
+                    } else {
+                        edit(exchange, id);
+                    }
+                    break;
+                case "DELETE":
+                    if (id == null) {
+                        send(exchange, 405, error("DELETE " + PATH + "/ID"));
+                    } else {
+                        delete(exchange, id);
+                    }
+                    break;
+                default:
+                    send(exchange, 405, error("method not allowed"));
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            send(exchange, 500, error("internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        List<Employee> employees;
+        Integer next = null;
+        if (query.containsKey("surname")) {
+            employees = controller.searchAllBySurname(query.get("surname"));
+        } else if (query.containsKey("prefix")) {
+            employees = controller.searchBySurnamePrefix(query.get("prefix"));
+        } else {
+            int after = query.containsKey("after") ? parseInt(query.get("after"), "after") : 0;
+            int limit = query.containsKey("limit") ? parseInt(query.get("limit"), "limit") : DEFAULT_PAGE;
+            if (limit < 1 || limit > MAX_PAGE) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE);
+            }
+            employees = controller.listEmployees(after, limit);
+            if (employees.size() == limit) {
+                next = employees.get(limit - 1).getEmployeeId();
+            }
+        }
+        StringBuilder json = new StringBuilder(64 + employees.size() * 160);
+        json.append("{\"employees\":[");
+        for (int i = 0; i < employees.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            EmployeeJson.append(employees.get(i), json);
+        }
+        json.append("],\"next\":").append(next).append('}');
+        send(exchange, 200, json);
+    }
+
+    private void get(HttpExchange exchange, int id) throws IOException {
+        Employee employee = controller.searchById(id);
+        if (employee == null) {
+            send(exchange, 404, error("no employee with ID " + id));
+            return;
+        }
+        StringBuilder json = new StringBuilder(192);
+        EmployeeJson.append(employee, json);
+        send(exchange, 200, json);
+    }
+
+    private void add(HttpExchange exchange) throws IOException {
+        Employee employee = EmployeeJson.parse(body(exchange));
+        validate(employee);
+        boolean added;
+        try {
+            added = controller.insertEmployee(employee);
+        } catch (IOException e) {
+            writeFailed(exchange, e);
+            return;
+        }
+        if (!added) {
+            send(exchange, 409, error("ID " + employee.getEmployeeId() + " is already in use"));
+            return;
+        }
+        StringBuilder json = new StringBuilder(192);
+        EmployeeJson.append(employee, json);
+        send(exchange, 201, json);
+    }
+
+    private void edit(HttpExchange exchange, int id) throws IOException {
+        Employee employee = EmployeeJson.parse(body(exchange));
+        employee.setEmployeeId(id);
+        validate(employee);
+        boolean edited;
+        try {
+            edited = controller.updateEmployee(employee);
+        } catch (IOException e) {
+            writeFailed(exchange, e);
+            return;
+        }
+        if (!edited) {
+            send(exchange, 404, error("no employee with ID " + id));
+            return;
+        }
+        StringBuilder json = new StringBuilder(192);
+        EmployeeJson.append(employee, json);
+        send(exchange, 200, json);
+    }
+
+    private void delete(HttpExchange exchange, int id) throws IOException {
+        boolean deleted;
+        try {
+            deleted = controller.removeEmployee(id);
+        } catch (IOException e) {
+            writeFailed(exchange, e);
+            return;
+        }
+        if (!deleted) {
+            send(exchange, 404, error("no employee with ID " + id));
+            return;
+        }
+        send(exchange, 204, null);
+    }
+
+    // The request was fine but the change could not be made durable
+    private static void writeFailed(HttpExchange exchange, IOException e) throws IOException {
+        e.printStackTrace();
+        send(exchange, 500, error("could not write the employee file: " + e.getMessage()));
+    }
+
+    // Same checks as the Add Record dialog
+    private static void validate(Employee employee) {
+        if (employee.getEmployeeId() < 1) {
+            throw new IllegalArgumentException("id must be 1 or more");
+        }
+        if (!ValidationUtil.isValidPps(employee.getPps())) {
+            throw new IllegalArgumentException("PPS Number must be 7 characters");
+        }
+        if (!ValidationUtil.isValidName(employee.getSurname()) || !ValidationUtil.isValidName(employee.getFirstName())) {
+            throw new IllegalArgumentException("first name and surname cannot be empty");
+        }
+        if (employee.getSalary() < 0) {
+            throw new IllegalArgumentException("salary cannot be negative");
+        }
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY + 1);
+            if (bytes.length > MAX_BODY) {
+                throw new IllegalArgumentException("request body is larger than " + MAX_BODY + " bytes");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static int parseId(String text) {
+        int id = parseInt(text, "ID");
+        if (id < 1) {
+            throw new IllegalArgumentException("ID must be 1 or more");
+        }
+        return id;
+    }
+
+    private static int parseInt(String text, String name) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a whole number: " + text);
+        }
+    }
+
+    private static StringBuilder error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        EmployeeJson.appendString(message, json);
+        return json.append('}');
+    }
+
+    // Send the status with a JSON body, or with no body when json is null
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
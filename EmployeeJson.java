@@ -0,0 +1,224 @@
+/*
+ *
+ * This is the JSON mapping for employee records
+ *
+ * */
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes an employee as one JSON object with the same field names as the CSV header.
+ * Strings are trimmed of record padding and escaped per RFC 8259. parse() reads the same
+ * flat object back; unknown fields are ignored and nested values are not supported.
+ */
+public final class EmployeeJson {
+
+    private EmployeeJson() {
+    }
+
+    /** Append the employee as a single-line JSON object. */
+    public static void append(Employee employee, StringBuilder out) {
+        out.append("{\"id\":").append(employee.getEmployeeId());
+        out.append(",\"pps\":");
+        appendString(employee.getPps(), out);
+        out.append(",\"surname\":");
+        appendString(employee.getSurname(), out);
+        out.append(",\"firstName\":");
+        appendString(employee.getFirstName(), out);
+        out.append(",\"gender\":");
+        appendString(String.valueOf(employee.getGender()), out);
+        out.append(",\"department\":");
+        appendString(employee.getDepartment(), out);
+        out.append(",\"salary\":").append(employee.getSalary());
+        out.append(",\"fullTime\":").append(employee.getFullTime());
+        out.append('}');
+    }
+
+    /** Append a trimmed string as a quoted, escaped JSON string (null becomes ""). */
+    public static void appendString(String value, StringBuilder out) {
+        String s = value == null ? "" : value.trim();
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Parse a JSON object with the fields written by append() into a new employee, throwing
+     * IllegalArgumentException with the reason if it is malformed. The id may be left out.
+     */
+    public static Employee parse(String json) {
+        Map<String, Object> fields = new Parser(json).object();
+        Employee employee = new Employee();
+        employee.setEmployeeId(fields.containsKey("id") ? (int) number(fields, "id") : 0);
+        employee.setPps(string(fields, "pps"));
+        employee.setSurname(string(fields, "surname"));
+        employee.setFirstName(string(fields, "firstName"));
+        String gender = string(fields, "gender").toUpperCase();
+        if (!gender.equals("M") && !gender.equals("F")) {
+            throw new IllegalArgumentException("gender must be M or F: " + gender);
+        }
+        employee.setGender(gender.charAt(0));
+        employee.setDepartment(string(fields, "department"));
+        employee.setSalary(number(fields, "salary"));
+        Object fullTime = fields.get("fullTime");
+        if (!(fullTime instanceof Boolean)) {
+            throw new IllegalArgumentException("fullTime must be true or false");
+        }
+        employee.setFullTime((Boolean) fullTime);
+        return employee;
+    }
+
+    private static String string(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException(name + " must be a string");
+        }
+        return ((String) value).trim();
+    }
+
+    private static double number(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        return (Double) value;
+    }
+
+    // Recursive-descent reader for one flat object of strings, numbers, booleans and nulls
+    private static final class Parser {
+        private final String text;
+        private int at;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> object() {
+            Map<String, Object> fields = new HashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                at++;
+            } else {
+                do {
+                    String name = string();
+                    expect(':');
+                    fields.put(name, value());
+                } while (accept(','));
+                expect('}');
+            }
+            if (peek() != 0) {
+                throw error("unexpected text after the object");
+            }
+            return fields;
+        }
+
+        private Object value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (text.startsWith("true", at)) {
+                at += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", at)) {
+                at += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", at)) {
+                at += 4;
+                return null;
+            }
+            int start = at;
+            while (at < text.length() && "+-.eE0123456789".indexOf(text.charAt(at)) >= 0) {
+                at++;
+            }
+            try {
+                return Double.parseDouble(text.substring(start, at));
+            } catch (NumberFormatException e) {
+                throw error("expected a value");
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (at < text.length()) {
+                char c = text.charAt(at++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (at >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(at++);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (at + 4 > text.length()) {
+                            throw error("truncated \\u escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("bad \\u escape");
+                        }
+                        at += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        // Next character after white space, or 0 at the end of the text
+        private char peek() {
+            while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+                at++;
+            }
+            return at < text.length() ? text.charAt(at) : 0;
+        }
+
+        private boolean accept(char c) {
+            if (peek() == c) {
+                at++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!accept(c)) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String reason) {
+            return new IllegalArgumentException(reason + " at character " + at);
+        }
+    }
+}
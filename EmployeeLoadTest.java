@@ -0,0 +1,149 @@
+/*
+ *
+ * This is the load-test client for EmployeeHttpService
+ *
+ * */
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Drives a running EmployeeHttpService with many requests in flight at once and reports
+ * throughput and latency percentiles for each phase: adding its own employees, a mix of reads
+ * and edits against them, and deleting them again, so the server's data ends as it started.
+ * Employees are given IDs from a high base so they do not clash with real records.
+ */
+public class EmployeeLoadTest {
+    private static final int FIRST_ID = 1_000_000;
+
+    private final HttpClient client;
+    private final URI base;
+    private final int concurrency;
+
+    private EmployeeLoadTest(URI base, int concurrency, ExecutorService executor) {
+        this.base = base;
+        this.concurrency = concurrency;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 5) {
+            System.err.println("Usage: java EmployeeLoadTest <base url, e.g. http://localhost:8080> [employees]"
+                    + " [requests] [concurrency] [write percent]");
+            System.exit(2);
+        }
+        URI base = URI.create(args[0].replaceAll("/+$", "") + EmployeeHttpService.PATH);
+        int employees = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+        int writePercent = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        // Resend a request whose pooled connection the server closed before it was read; the client
+        // only does so for GETs by default, and PUT and DELETE are just as safe to repeat
+        System.setProperty("jdk.httpclient.enableAllMethodRetry", "true");
+        ExecutorService executor = EmployeeHttpService.newPerRequestExecutor("load-client");
+        EmployeeLoadTest test = new EmployeeLoadTest(base, concurrency, executor);
+        try {
+            System.out.printf("%-8s %8s %7s %10s %9s %9s %9s %9s %9s%n",
+                    "phase", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            test.phase("add", employees, i -> test.post(employee(FIRST_ID + i, 30_000)));
+            test.phase("mixed", requests, i -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int id = FIRST_ID + random.nextInt(employees);
+                int pick = random.nextInt(100);
+                if (pick < writePercent) {
+                    return test.put(id, employee(id, 30_000 + random.nextInt(50_000)));
+                } else if (pick < writePercent + (100 - writePercent) / 2) {
+                    return test.get("/" + id);
+                } else if (pick % 2 == 0) {
+                    return test.get("?surname=LOADTEST" + (id % 100));
+                }
+                return test.get("?after=" + (id - 1) + "&limit=20");
+            });
+            test.phase("delete", employees, i -> test.delete(FIRST_ID + i));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Send count requests, at most concurrency at a time, and print the phase's figures
+    private void phase(String name, int count, IntFunction<HttpRequest> request) throws InterruptedException {
+        long[] latencies = new long[count];
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+        CompletableFuture<?>[] sent = new CompletableFuture<?>[count];
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            inFlight.acquire();
+            int index = i;
+            long sentAt = System.nanoTime();
+            sent[i] = client.sendAsync(request.apply(i), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        latencies[index] = System.nanoTime() - sentAt;
+                        if (failure != null || response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(sent).exceptionally(failure -> null).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-8s %8d %7d %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, count, errors.get(),
+                count / seconds, percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                percentile(latencies, 99.9), percentile(latencies, 100));
+    }
+
+    // Latency in milliseconds below which the given percent of the sorted samples fall
+    private static double percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))] / 1e6;
+    }
+
+    private HttpRequest get(String suffix) {
+        return HttpRequest.newBuilder(URI.create(base + suffix)).GET().build();
+    }
+
+    private HttpRequest post(Employee employee) {
+        return HttpRequest.newBuilder(base).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json(employee))).build();
+    }
+
+    private HttpRequest put(int id, Employee employee) {
+        return HttpRequest.newBuilder(URI.create(base + "/" + id)).header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json(employee))).build();
+    }
+
+    private HttpRequest delete(int id) {
+        return HttpRequest.newBuilder(URI.create(base + "/" + id)).DELETE().build();
+    }
+
+    private static Employee employee(int id, double salary) {
+        return new Employee(id, String.format("L%06d", id % 1_000_000), "LoadTest" + (id % 100), "Client",
+                id % 2 == 0 ? 'M' : 'F', "Production", salary, true);
+    }
+
+    private static String json(Employee employee) {
+        StringBuilder json = new StringBuilder(192);
+        EmployeeJson.append(employee, json);
+        return json.toString();
+    }
+}
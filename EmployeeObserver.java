@@ -1,7 +1,10 @@
+import java.util.List;
+
 public interface EmployeeObserver {
     /**
-     * Called when the employee data has been modified (added, edited, or deleted).
+     * Called when employee data has been modified (added, edited, or deleted), off the writer's
+     * thread and with bursts of writes coalesced into one batch of changes, at most one per ID.
      * Implementing classes should update their view accordingly.
      */
-    void employeeDataChanged();
+    void employeesChanged(List<EmployeeChange> changes);
 }
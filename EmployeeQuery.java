@@ -0,0 +1,230 @@
+/*
+ *
+ * This is a query over every field of an employee, built from composable criteria
+ *
+ * */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A conjunction of criteria on employee fields, e.g. the full-time staff in Sales earning
+ * 40k to 60k whose surname starts with O':
+ *
+ *     EmployeeQuery.all().fullTime(true).department("Sales")
+ *             .salaryBetween(40000, 60000).surnameStartsWith("O'")
+ *
+ * Each method adds a criterion and returns the query. Queries combine with and() and or(),
+ * and matching() adds any other predicate. Text comparisons ignore case and surrounding spaces.
+ *
+ * Besides testing employees, a query remembers the criteria an index can answer (the ID range,
+ * the surname, and gender, full-time and department through an EmployeeBitmapIndex) so that
+ * EmployeeController.plan() can choose where to start looking, and EmployeeController.count()
+ * can answer a query made only of bitmap-indexed criteria without looking at any employee.
+ */
+public class EmployeeQuery {
+    private final List<Predicate<Employee>> criteria = new ArrayList<>();
+    private final List<String> descriptions = new ArrayList<>();
+    private int minId = Integer.MIN_VALUE;  // ID range every match lies in, inclusive
+    private int maxId = Integer.MAX_VALUE;
+    private String surname;                 // normalized surname or surname prefix, null if unconstrained
+    private boolean surnamePrefix;
+    private Function<EmployeeBitmapIndex, SlotBitmap> bitmapTerm;  // slots the bitmap-indexed criteria allow, null if none
+    private boolean bitmapOnly = true;      // bitmapTerm answers every criterion
+
+    /** A query every employee matches; add criteria to narrow it. */
+    public static EmployeeQuery all() {
+        return new EmployeeQuery();
+    }
+
+    /** Employees with the given ID. */
+    public EmployeeQuery id(int id) {
+        return idBetween(id, id);
+    }
+
+    /** Employees with from &lt;= ID &lt;= to. */
+    public EmployeeQuery idBetween(int from, int to) {
+        minId = Math.max(minId, from);
+        maxId = Math.min(maxId, to);
+        return add("id " + from + ".." + to, emp -> emp.getId() >= from && emp.getId() <= to);
+    }
+
+    /** Employees with the given PPS number. */
+    public EmployeeQuery pps(String pps) {
+        String wanted = pps.trim();
+        return add("pps = \"" + wanted + "\"", emp -> emp.getPps().trim().equalsIgnoreCase(wanted));
+    }
+
+    /** Employees with the given surname. */
+    public EmployeeQuery surname(String name) {
+        String wanted = SurnameIndex.normalize(name);
+        surname = wanted;
+        surnamePrefix = false;
+        return add("surname = \"" + wanted + "\"", emp -> SurnameIndex.normalize(emp.getSurname()).equals(wanted));
+    }
+
+    /** Employees whose surname starts with the given prefix. */
+    public EmployeeQuery surnameStartsWith(String prefix) {
+        String wanted = SurnameIndex.normalize(prefix);
+        if (surname == null || surnamePrefix) {
+            surname = wanted;  // an exact surname is the narrower lookup, so it is kept
+            surnamePrefix = true;
+        }
+        return add("surname starts with \"" + wanted + "\"",
+                emp -> SurnameIndex.normalize(emp.getSurname()).startsWith(wanted));
+    }
+
+    /** Employees with the given first name. */
+    public EmployeeQuery firstName(String name) {
+        String wanted = name.trim();
+        return add("first name = \"" + wanted + "\"", emp -> emp.getFirstName().trim().equalsIgnoreCase(wanted));
+    }
+
+    /** Employees whose first name starts with the given prefix. */
+    public EmployeeQuery firstNameStartsWith(String prefix) {
+        String wanted = prefix.trim().toUpperCase();
+        return add("first name starts with \"" + wanted + "\"",
+                emp -> emp.getFirstName().trim().toUpperCase().startsWith(wanted));
+    }
+
+    /** Employees of the given gender ('M' or 'F'). */
+    public EmployeeQuery gender(char gender) {
+        char wanted = Character.toUpperCase(gender);
+        return addIndexed("gender = " + wanted, emp -> Character.toUpperCase(emp.getGender()) == wanted,
+                index -> index.gender(wanted));
+    }
+
+    /** Employees in the given department. */
+    public EmployeeQuery department(String department) {
+        String wanted = EmployeeBitmapIndex.normalize(department);
+        return addIndexed("department = \"" + wanted + "\"",
+                emp -> EmployeeBitmapIndex.normalize(emp.getDepartment()).equals(wanted),
+                index -> index.department(wanted));
+    }
+
+    /** Employees with min &lt;= salary &lt;= max. */
+    public EmployeeQuery salaryBetween(double min, double max) {
+        return add("salary " + min + ".." + max, emp -> emp.getSalary() >= min && emp.getSalary() <= max);
+    }
+
+    /** Full-time employees when true, part-time ones when false. */
+    public EmployeeQuery fullTime(boolean fullTime) {
+        return addIndexed(fullTime ? "full time" : "part time", emp -> emp.getFullTime() == fullTime,
+                index -> index.fullTime(fullTime));
+    }
+
+    /** Employees for which the predicate holds; the description is shown in query plans. */
+    public EmployeeQuery matching(String description, Predicate<Employee> predicate) {
+        return add(description, predicate);
+    }
+
+    /** Employees that match this query and the other one too. */
+    public EmployeeQuery and(EmployeeQuery other) {
+        minId = Math.max(minId, other.minId);
+        maxId = Math.min(maxId, other.maxId);
+        if (other.surname != null && (surname == null || (surnamePrefix && !other.surnamePrefix))) {
+            surname = other.surname;
+            surnamePrefix = other.surnamePrefix;
+        }
+        bitmapTerm = and(bitmapTerm, other.bitmapTerm);
+        bitmapOnly &= other.bitmapOnly;
+        criteria.addAll(other.criteria);
+        descriptions.addAll(other.descriptions);
+        return this;
+    }
+
+    /**
+     * Employees that match either query. When both sides are made only of bitmap-indexed
+     * criteria the result is the union of their bitmaps; otherwise no single index answers
+     * both sides, and it is planned as a scan unless further criteria are added to it.
+     * Neither query should be changed afterwards.
+     */
+    public EmployeeQuery or(EmployeeQuery other) {
+        EmployeeQuery either = new EmployeeQuery();
+        EmployeeQuery first = this;
+        Predicate<Employee> criterion = emp -> first.test(emp) || other.test(emp);
+        String description = "(" + first + ") or (" + other + ")";
+        Function<EmployeeBitmapIndex, SlotBitmap> a = first.bitmapTerm;
+        Function<EmployeeBitmapIndex, SlotBitmap> b = other.bitmapTerm;
+        if (first.bitmapOnly && other.bitmapOnly && a != null && b != null) {
+            return either.addIndexed(description, criterion, index -> a.apply(index).or(b.apply(index)));
+        }
+        return either.add(description, criterion);
+    }
+
+    /** True if the employee meets every criterion. */
+    public boolean test(Employee emp) {
+        for (Predicate<Employee> criterion : criteria) {
+            if (!criterion.test(emp)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** True if an ID range narrows the query. */
+    boolean hasIdRange() {
+        return minId != Integer.MIN_VALUE || maxId != Integer.MAX_VALUE;
+    }
+
+    int getMinId() {
+        return minId;
+    }
+
+    int getMaxId() {
+        return maxId;
+    }
+
+    /** Normalized surname, or surname prefix if isSurnamePrefix(), to look up; null if there is none. */
+    String getSurname() {
+        return surname;
+    }
+
+    boolean isSurnamePrefix() {
+        return surnamePrefix;
+    }
+
+    /** Slots allowed by the bitmap-indexed criteria, or null if there are none. Call under the index owner's lock. */
+    SlotBitmap bitmapSlots(EmployeeBitmapIndex index) {
+        return bitmapTerm == null ? null : bitmapTerm.apply(index);
+    }
+
+    /** True if bitmapSlots() alone decides which employees match. */
+    boolean isBitmapOnly() {
+        return bitmapOnly;
+    }
+
+    /** The criteria in words, e.g. full time and department = "Sales". */
+    @Override
+    public String toString() {
+        return descriptions.isEmpty() ? "everything" : String.join(" and ", descriptions);
+    }
+
+    /** Utility: Add a criterion with its description. */
+    private EmployeeQuery add(String description, Predicate<Employee> criterion) {
+        descriptions.add(description);
+        criteria.add(criterion);
+        bitmapOnly = false;
+        return this;
+    }
+
+    /** Utility: Add a criterion that the bitmap index answers with the given term. */
+    private EmployeeQuery addIndexed(String description, Predicate<Employee> criterion,
+            Function<EmployeeBitmapIndex, SlotBitmap> term) {
+        descriptions.add(description);
+        criteria.add(criterion);
+        bitmapTerm = and(bitmapTerm, term);
+        return this;
+    }
+
+    /** Utility: Term allowing the slots both terms allow (either may be null, for no restriction). */
+    private static Function<EmployeeBitmapIndex, SlotBitmap> and(Function<EmployeeBitmapIndex, SlotBitmap> a,
+            Function<EmployeeBitmapIndex, SlotBitmap> b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return index -> a.apply(index).and(b.apply(index));
+    }
+}
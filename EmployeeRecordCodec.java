@@ -0,0 +1,153 @@
+/*
+ *
+ * This is the binary codec for fixed-size employee records
+ *
+ * */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+public class EmployeeRecordCodec {
+    public static final int SIZE = RandomAccessEmployeeRecord.SIZE;
+    static final int NAME_LENGTH = 20;  // chars stored for each string field
+
+    // Byte offset of each field within a record
+    public static final int ID_AT = 0;
+    public static final int PPS_AT = 4;
+    public static final int SURNAME_AT = PPS_AT + 2 * NAME_LENGTH;
+    public static final int FIRST_NAME_AT = SURNAME_AT + 2 * NAME_LENGTH;
+    public static final int GENDER_AT = FIRST_NAME_AT + 2 * NAME_LENGTH;
+    public static final int DEPARTMENT_AT = GENDER_AT + 2;
+    public static final int SALARY_AT = DEPARTMENT_AT + 2 * NAME_LENGTH;
+    public static final int FULL_TIME_AT = SALARY_AT + 8;
+
+    // Reusable I/O buffer; a codec instance must not be shared between threads
+    private final ByteBuffer buffer;
+
+    /** Create a codec that reads and writes one record at a time. */
+    public EmployeeRecordCodec() {
+        this(1);
+    }
+
+    /** Create a codec whose buffer holds up to the given number of contiguous records. */
+    public EmployeeRecordCodec(int batchRecords) {
+        buffer = ByteBuffer.allocate(batchRecords * SIZE);
+    }
+
+    /** Number of records that fit in this codec's buffer. */
+    public int batchRecords() {
+        return buffer.capacity() / SIZE;
+    }
+
+    /** Encode an employee at the buffer's current position, advancing it by SIZE bytes. */
+    public static void encode(Employee employee, ByteBuffer target) {
+        target.putInt(employee.getEmployeeId());
+        putName(target, upper(employee.getPps()));
+        putName(target, upper(employee.getSurname()));
+        putName(target, upper(employee.getFirstName()));
+        target.putChar(employee.getGender());
+        putName(target, employee.getDepartment());
+        target.putDouble(employee.getSalary());
+        target.put((byte) (employee.getFullTime() ? 1 : 0));
+    }
+
+    /** Decode the record at the buffer's current position into the given employee, advancing it by SIZE bytes. */
+    public static void decode(ByteBuffer source, Employee employee) {
+        employee.setEmployeeId(source.getInt());
+        employee.setPps(getName(source));
+        employee.setSurname(getName(source));
+        employee.setFirstName(getName(source));
+        employee.setGender(source.getChar());
+        employee.setDepartment(getName(source));
+        employee.setSalary(source.getDouble());
+        employee.setFullTime(source.get() != 0);
+    }
+
+    /** Read the record at the given file position with a single positional read. */
+    public void read(FileChannel channel, long position, Employee into) throws IOException {
+        buffer.clear().limit(SIZE);
+        fill(channel, position);
+        if (buffer.hasRemaining())
+            throw new EOFException("Incomplete record at byte " + position);
+        buffer.flip();
+        decode(buffer, into);
+    }
+
+    /** Write the employee at the given file position with a single positional write. */
+    public void write(FileChannel channel, long position, Employee employee) throws IOException {
+        buffer.clear();
+        encode(employee, buffer);
+        buffer.flip();
+        drain(channel, position);
+    }
+
+    /**
+     * Read up to count contiguous records starting at the given position in one I/O call.
+     * The returned buffer is positioned at the first record and holds only whole records;
+     * it is reused by the next call on this codec.
+     */
+    public ByteBuffer readBatch(FileChannel channel, long position, int count) throws IOException {
+        buffer.clear().limit(Math.min(count, batchRecords()) * SIZE);
+        fill(channel, position);
+        buffer.flip();
+        buffer.limit(buffer.limit() - buffer.limit() % SIZE);  // drop a trailing partial record
+        return buffer;
+    }
+
+    /** Write the employees as contiguous records starting at the given position, one I/O call per full buffer. */
+    public void writeBatch(FileChannel channel, long position, List<? extends Employee> employees) throws IOException {
+        buffer.clear();
+        for (Employee employee : employees) {
+            if (buffer.remaining() < SIZE) {
+                buffer.flip();
+                position += drain(channel, position);
+                buffer.clear();
+            }
+            encode(employee, buffer);
+        }
+        buffer.flip();
+        drain(channel, position);
+    }
+
+    // Read from the channel until the buffer is full or end of file is reached
+    private void fill(FileChannel channel, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                break;
+        }
+    }
+
+    // Write the whole buffer to the channel, returning the number of bytes written
+    private int drain(FileChannel channel, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    // Write a string as exactly NAME_LENGTH chars, padding with '\0' or truncating as needed
+    private static void putName(ByteBuffer target, String name) {
+        int length = name == null ? 0 : Math.min(name.length(), NAME_LENGTH);
+        for (int i = 0; i < NAME_LENGTH; i++) {
+            target.putChar(i < length ? name.charAt(i) : '\0');
+        }
+    }
+
+    // Read a NAME_LENGTH char string, showing padding as spaces
+    private static String getName(ByteBuffer source) {
+        char[] name = new char[NAME_LENGTH];
+        for (int i = 0; i < NAME_LENGTH; i++) {
+            char c = source.getChar();
+            name[i] = c == '\0' ? ' ' : c;
+        }
+        return new String(name);
+    }
+
+    private static String upper(String s) {
+        return s == null ? null : s.toUpperCase();
+    }
+}
@@ -12,8 +12,9 @@ import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.text.DecimalFormat;
-import java.util.Vector;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -23,21 +24,29 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.SwingWorker;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 
 import net.miginfocom.swing.MigLayout;
 
 public class EmployeeSummaryDialog extends JDialog implements ActionListener {
-	// vector with all Employees details
-	Vector<Object> allEmployees;
 	JButton back;
+	private int sortColumn = -1;// column the table is sorted on, -1 for file order
+	private boolean sortDescending;
 	
 	public EmployeeSummaryDialog(Frame parent, Employee employee) {
 	    super(parent, "Employee Summary", true);
 	    setupUI(employee);
 	}
 
+	// Dialog listing all employees of the model, which reads rows from the file as they are shown
+	public EmployeeSummaryDialog(Frame parent, EmployeeTableModel tableModel) {
+		super(parent, "Employee Summary", true);
+		setContentPane(summaryPane(tableModel));
+		pack();
+		setLocationRelativeTo(parent);
+	}
+
 	private void setupUI(Employee employee) {
 	    setLayout(new BorderLayout());
 	    JPanel panel = new JPanel(new GridLayout(8, 2, 5, 5));
@@ -60,50 +69,24 @@ public class EmployeeSummaryDialog extends JDialog implements ActionListener {
 	    pack();
 	    setLocationRelativeTo(getParent());
 	}
-	// Initialize container
-	public Container summaryPane() {
+	// Initialize container; rows are read from the record file only as they are shown
+	public Container summaryPane(EmployeeTableModel tableModel) {
 		JPanel summaryDialog = new JPanel(new MigLayout());
 		JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
 		JTable employeeTable;
-		DefaultTableModel tableModel;
 		// column center alignment
 		DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
 		// column left alignment 
 		DefaultTableCellRenderer leftRenderer = new DefaultTableCellRenderer();
-		Vector<String> header = new Vector<String>();
-		// header names
-		String[] headerName = { "ID", "PPS Number", "Surname", "First Name", "Gender", "Department", "Salary",
-				"Full Time" };
 		// column widths
 		int[] colWidth = { 15, 100, 120, 120, 50, 120, 80, 80 };
 		centerRenderer.setHorizontalAlignment(JLabel.CENTER);
 		leftRenderer.setHorizontalAlignment(JLabel.LEFT);
-		// add headers
-		for (int i = 0; i < headerName.length; i++) {
-			header.addElement(headerName[i]);
-		}// end for
-		// Construct table and choose table model for each column
-		tableModel = new DefaultTableModel(this.allEmployees, header) {
-			public Class getColumnClass(int c) {
-				switch (c) {
-				case 0:
-					return Integer.class;
-				case 4:
-					return Character.class;
-				case 6:
-					return Double.class;
-				case 7:
-					return Boolean.class;
-				default:
-					return String.class;
-				}// end switch
-			}// end getColumnClass
-		};
 
 		employeeTable = new JTable(tableModel);
-		// add header names to table
+		// set minimum column widths
 		for (int i = 0; i < employeeTable.getColumnCount(); i++) {
-			employeeTable.getColumn(headerName[i]).setMinWidth(colWidth[i]);
+			employeeTable.getColumnModel().getColumn(i).setMinWidth(colWidth[i]);
 		}// end for
 		// set alignments
 		employeeTable.getColumnModel().getColumn(0).setCellRenderer(leftRenderer);
@@ -111,8 +94,16 @@ public class EmployeeSummaryDialog extends JDialog implements ActionListener {
 		employeeTable.getColumnModel().getColumn(6).setCellRenderer(new DecimalFormatRenderer());
 
 		employeeTable.setEnabled(false);
-		employeeTable.setPreferredScrollableViewportSize(new Dimension(800, (15 * employeeTable.getRowCount() + 15)));
-		employeeTable.setAutoCreateRowSorter(true);
+		employeeTable.setPreferredScrollableViewportSize(
+				new Dimension(800, employeeTable.getRowHeight() * Math.min(20, employeeTable.getRowCount()) + 15));
+		// sort through the model's sort indexes; a row sorter would read every row
+		employeeTable.getTableHeader().addMouseListener(new MouseAdapter() {
+			public void mouseClicked(MouseEvent e) {
+				int column = employeeTable.convertColumnIndexToModel(employeeTable.columnAtPoint(e.getPoint()));
+				if (column >= 0)
+					sortBy(employeeTable, tableModel, column);
+			}// end mouseClicked
+		});
 		JScrollPane scrollPane = new JScrollPane(employeeTable);
 
 		buttonPanel.add(back = new JButton("Back"));
@@ -126,6 +117,38 @@ public class EmployeeSummaryDialog extends JDialog implements ActionListener {
 		return summaryDialog;
 	}// end summaryPane
 
+	// Sort on a column, or reverse the sort when it is already sorted on it; the index is built off the EDT
+	private void sortBy(JTable employeeTable, EmployeeTableModel tableModel, int column) {
+		boolean descending = column == sortColumn && !sortDescending;
+		employeeTable.getTableHeader().setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+		new SwingWorker<int[], Void>() {
+			protected int[] doInBackground() throws Exception {
+				return tableModel.sortIndex(column);
+			}// end doInBackground
+
+			protected void done() {
+				employeeTable.getTableHeader().setCursor(Cursor.getDefaultCursor());
+				try {
+					tableModel.sortBy(get(), descending);
+				} // end try
+				catch (Exception e) {
+					e.printStackTrace();
+					return;
+				} // end catch
+				sortColumn = column;
+				sortDescending = descending;
+				// mark sorted column in header
+				for (int i = 0; i < employeeTable.getColumnCount(); i++) {
+					int modelColumn = employeeTable.convertColumnIndexToModel(i);
+					String name = EmployeeTableModel.COLUMNS[modelColumn];
+					employeeTable.getColumnModel().getColumn(i).setHeaderValue(
+							modelColumn == column ? name + (descending ? " \u25BC" : " \u25B2") : name);
+				} // end for
+				employeeTable.getTableHeader().repaint();
+			}// end done
+		}.execute();
+	}// end sortBy
+
 	public void actionPerformed(ActionEvent e) {
 		if (e.getSource() == back){
 			dispose();
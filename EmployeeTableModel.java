@@ -0,0 +1,294 @@
+/*
+ *
+ * This is the lazily paged table model behind the employee summary
+ *
+ * */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Shows every employee of a columnar snapshot without holding the rows. ID, gender,
+ * department, salary and full-time status come straight from the snapshot's columns. The
+ * text fields are taken from the RowSource's current employees a page of rows at a time when
+ * the table first asks for them, and only the last few pages are kept. A row whose employee
+ * has been deleted since the snapshot (its record no longer holds the snapshot's ID) shows
+ * no text rather than another employee's.
+ *
+ * Sorting never goes through the table: sortIndex() builds the row order for a column once
+ * (from the snapshot, the source's surname index, or the source's employees for the other
+ * text columns) and sortBy() applies it.
+ */
+public class EmployeeTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    static final String[] COLUMNS = {"ID", "PPS Number", "Surname", "First Name", "Gender", "Department", "Salary",
+            "Full Time"};
+    private static final Class<?>[] COLUMN_CLASSES = {Integer.class, String.class, String.class, String.class,
+            Character.class, String.class, Double.class, Boolean.class};
+    private static final String[] NO_TEXT = {"", "", ""};
+    private static final int PAGE_ROWS = 128;
+    private static final int CACHED_PAGES = 16;
+    private static final int SORT_BATCH = 4096;  // rows whose employees are fetched per call while sorting
+
+    private final RowSource source;
+    private final EmployeeColumns columns;
+    private final Map<Integer, int[]> sortIndexes = new ConcurrentHashMap<>();  // column -> rows in ascending order
+    private final Map<Integer, String[][]> pages = new LinkedHashMap<Integer, String[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[][]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private int[] order;  // view row -> snapshot row, null while in file order
+    private boolean descending;
+
+    /** Where the rows' current details come from; EmployeeController implements it. */
+    public interface RowSource {
+        /** The current employee in the record at each position, null where the record is blank. */
+        Employee[] employeesAt(long[] positions);
+
+        /** Positions of the records with a surname, in surname order (ignoring case). */
+        long[] positionsBySurname();
+    }
+
+    public EmployeeTableModel(RowSource source, EmployeeColumns columns) {
+        this.source = source;
+        this.columns = columns;
+    }
+
+    @Override
+    public int getRowCount() {
+        return columns.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public Object getValueAt(int viewRow, int column) {
+        int row = rowAt(viewRow);
+        switch (column) {
+            case 0:
+                return columns.id(row);
+            case 4:
+                return columns.isMale(row) ? 'M' : 'F';
+            case 5:
+                return columns.department(row);
+            case 6:
+                return columns.salary(row);
+            case 7:
+                return columns.isFullTime(row);
+            default:
+                return page(viewRow / PAGE_ROWS)[viewRow % PAGE_ROWS][column - 1];
+        }
+    }
+
+    /**
+     * Snapshot rows in ascending order of the column, built on first use and kept. Text columns
+     * look at every current employee, so call this off the event dispatch thread.
+     */
+    public int[] sortIndex(int column) {
+        int[] index = sortIndexes.get(column);
+        if (index == null) {
+            index = sortedRows(column);
+            sortIndexes.put(column, index);
+        }
+        return index;
+    }
+
+    /** Show the rows in the order of a sort index, reversed when descending; null restores file order. */
+    public void sortBy(int[] index, boolean descending) {
+        this.order = index;
+        this.descending = descending;
+        pages.clear();  // pages hold view rows
+        fireTableDataChanged();
+    }
+
+    private int rowAt(int viewRow) {
+        if (order == null) {
+            return viewRow;
+        }
+        return order[descending ? order.length - 1 - viewRow : viewRow];
+    }
+
+    // Text fields of one page of view rows, taken from the source if the page is not cached
+    private String[][] page(int page) {
+        String[][] rows = pages.get(page);
+        if (rows == null) {
+            int from = page * PAGE_ROWS;
+            int[] snapshotRows = new int[Math.min(PAGE_ROWS, getRowCount() - from)];
+            for (int i = 0; i < snapshotRows.length; i++) {
+                snapshotRows[i] = rowAt(from + i);
+            }
+            rows = text(snapshotRows);
+            pages.put(page, rows);
+        }
+        return rows;
+    }
+
+    // PPS, surname and first name of each snapshot row, NO_TEXT for a row whose employee has gone
+    private String[][] text(int[] snapshotRows) {
+        long[] positions = new long[snapshotRows.length];
+        for (int i = 0; i < snapshotRows.length; i++) {
+            positions[i] = columns.position(snapshotRows[i]);
+        }
+        Employee[] current = source.employeesAt(positions);
+        String[][] text = new String[snapshotRows.length][];
+        for (int i = 0; i < text.length; i++) {
+            Employee emp = current[i];
+            boolean same = emp != null && emp.getEmployeeId() == columns.id(snapshotRows[i]);
+            text[i] = same ? new String[] {emp.getPps().trim(), emp.getSurname().trim(), emp.getFirstName().trim()}
+                    : NO_TEXT;
+        }
+        return text;
+    }
+
+    // Rank every row by the column's value and sort by rank, ties staying in file order
+    private int[] sortedRows(int column) {
+        int size = getRowCount();
+        int[] ranks = new int[size];
+        switch (column) {
+            case 0:
+                for (int row = 0; row < size; row++) {
+                    ranks[row] = columns.id(row);
+                }
+                break;
+            case 4:
+                for (int row = 0; row < size; row++) {
+                    ranks[row] = columns.isMale(row) ? 1 : 0;  // F before M
+                }
+                break;
+            case 5: {
+                String[] names = columns.departments().toArray(new String[0]);
+                String[] sorted = names.clone();
+                Arrays.sort(sorted);
+                int[] rankOfCode = new int[names.length];
+                for (int code = 0; code < names.length; code++) {
+                    rankOfCode[code] = Arrays.binarySearch(sorted, names[code]);
+                }
+                for (int row = 0; row < size; row++) {
+                    ranks[row] = rankOfCode[columns.departmentCode(row)];
+                }
+                break;
+            }
+            case 6: {
+                double[] distinct = distinct(salaries(size));
+                for (int row = 0; row < size; row++) {
+                    ranks[row] = Arrays.binarySearch(distinct, columns.salary(row));
+                }
+                break;
+            }
+            case 7:
+                for (int row = 0; row < size; row++) {
+                    ranks[row] = columns.isFullTime(row) ? 1 : 0;
+                }
+                break;
+            case 2:
+                surnameRanks(ranks);
+                break;
+            default: {
+                String[] values = textColumn(column - 1, size);
+                String[] distinct = distinct(values.clone());
+                Map<String, Integer> rankOf = new HashMap<>(distinct.length * 2);
+                for (int rank = 0; rank < distinct.length; rank++) {
+                    rankOf.put(distinct[rank], rank);
+                }
+                for (int row = 0; row < size; row++) {
+                    ranks[row] = rankOf.get(values[row]);
+                }
+            }
+        }
+        long[] byRank = new long[size];
+        for (int row = 0; row < size; row++) {
+            byRank[row] = (long) ranks[row] << 32 | row;
+        }
+        Arrays.sort(byRank);
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = (int) byRank[i];
+        }
+        return rows;
+    }
+
+    private double[] salaries(int size) {
+        double[] salaries = new double[size];
+        for (int row = 0; row < size; row++) {
+            salaries[row] = columns.salary(row);
+        }
+        return salaries;
+    }
+
+    // Rank of each row in the source's surname index; rows that are no longer there rank first, as blank
+    // surnames sort. Snapshot rows are in file order, so a position is found by binary search.
+    private void surnameRanks(int[] ranks) {
+        long[] positions = new long[ranks.length];
+        for (int row = 0; row < ranks.length; row++) {
+            positions[row] = columns.position(row);
+        }
+        long[] bySurname = source.positionsBySurname();
+        for (int rank = 0; rank < bySurname.length; rank++) {
+            int row = Arrays.binarySearch(positions, bySurname[rank]);
+            if (row >= 0) {
+                ranks[row] = rank + 1;
+            }
+        }
+    }
+
+    // One text field (0 PPS, 1 surname, 2 first name) of every row, from the source in batches
+    private String[] textColumn(int field, int size) {
+        String[] values = new String[size];
+        int[] snapshotRows = new int[SORT_BATCH];
+        for (int from = 0; from < size; from += SORT_BATCH) {
+            int count = Math.min(SORT_BATCH, size - from);
+            if (count < snapshotRows.length) {
+                snapshotRows = new int[count];
+            }
+            for (int i = 0; i < count; i++) {
+                snapshotRows[i] = from + i;
+            }
+            String[][] text = text(snapshotRows);
+            for (int i = 0; i < count; i++) {
+                values[from + i] = text[i][field];
+            }
+        }
+        return values;
+    }
+
+    private static double[] distinct(double[] values) {
+        Arrays.sort(values);
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (count == 0 || Double.compare(values[i], values[count - 1]) != 0) {
+                values[count++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    private static String[] distinct(String[] values) {
+        Arrays.sort(values);
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (count == 0 || !values[i].equals(values[count - 1])) {
+                values[count++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+}
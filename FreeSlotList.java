@@ -0,0 +1,170 @@
+/*
+ *
+ * This is a persistent list of deleted record positions available for reuse
+ *
+ * */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Stack of free record positions kept in a file next to the employee file ("employees.dat"
+ * gets "employees.dat.free"): a long count followed by the positions. Push and pop each cost
+ * one small positional write. A popped position is only handed out after checking that the
+ * record there is still blank, so a list left behind by an older writer can never cause a
+ * live record to be overwritten. If the file is missing it is rebuilt from a scan.
+ */
+public class FreeSlotList implements Closeable {
+    private static final int BATCH = 256;  // records read per call when rebuilding
+
+    private final FileChannel listChannel;
+    private final ByteBuffer entry = ByteBuffer.allocate(8);
+    private final ByteBuffer idBuffer = ByteBuffer.allocate(4);
+    private long[] positions = new long[16];
+    private int count;
+
+    private FreeSlotList(FileChannel listChannel) {
+        this.listChannel = listChannel;
+    }
+
+    /** Open the free list for the given employee file, rebuilding it from a scan if it does not exist. */
+    public static FreeSlotList open(Path dataPath, FileChannel data) throws IOException {
+        Path listPath = dataPath.resolveSibling(dataPath.getFileName() + ".free");
+        boolean exists = Files.exists(listPath);
+        FreeSlotList list = new FreeSlotList(FileChannel.open(listPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        if (exists && list.listChannel.size() >= 8) {
+            list.load();
+        } else {
+            list.rebuild(data);
+        }
+        return list;
+    }
+
+    /** Number of positions currently on the list. */
+    public synchronized int size() {
+        return count;
+    }
+
+    /** Take a free position whose record is still blank, or return -1 if there is none. */
+    public synchronized long poll(FileChannel data) throws IOException {
+        return poll(position -> isBlank(data, position));
+    }
+
+    /** Take a free position that the given check still finds blank, or return -1 if there is none. */
+    public synchronized long poll(BlankCheck check) throws IOException {
+        while (count > 0) {
+            long position = positions[--count];
+            writeCount();
+            if (check.isBlank(position)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /** Add the position of a record that has just been deleted. */
+    public synchronized void add(long position) throws IOException {
+        if (count == positions.length) {
+            positions = Arrays.copyOf(positions, count * 2);
+        }
+        positions[count] = position;
+        entry.clear();
+        entry.putLong(position).flip();
+        write(entry, 8 + count * 8L);
+        count++;
+        writeCount();
+    }
+
+    /** Forget every free position, e.g. after the file has been compacted. */
+    public synchronized void clear() throws IOException {
+        count = 0;
+        listChannel.truncate(8);
+        writeCount();
+    }
+
+    /** Replace the list with every blank record position in the employee file, lowest position on top. */
+    public synchronized void rebuild(FileChannel data) throws IOException {
+        count = 0;
+        EmployeeRecordCodec scanCodec = new EmployeeRecordCodec(BATCH);
+        long first = EmployeeFileFormat.FIRST_RECORD;
+        long records = Math.max(0, (data.size() - first) / EmployeeRecordCodec.SIZE);
+        long currentByte = first + records * EmployeeRecordCodec.SIZE;
+        while (currentByte > first) {
+            int batch = (int) Math.min(BATCH, (currentByte - first) / EmployeeRecordCodec.SIZE);
+            currentByte -= (long) batch * EmployeeRecordCodec.SIZE;
+            ByteBuffer block = scanCodec.readBatch(data, currentByte, batch);
+            for (int at = block.limit() - EmployeeRecordCodec.SIZE; at >= 0; at -= EmployeeRecordCodec.SIZE) {
+                if (block.getInt(at) == 0) {
+                    if (count == positions.length) {
+                        positions = Arrays.copyOf(positions, count * 2);
+                    }
+                    positions[count++] = currentByte + at;
+                }
+            }
+        }
+
+        // Write the whole list in one call
+        ByteBuffer all = ByteBuffer.allocate(8 + count * 8);
+        all.putLong(count);
+        for (int i = 0; i < count; i++) {
+            all.putLong(positions[i]);
+        }
+        all.flip();
+        listChannel.truncate(0);
+        write(all, 0);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        listChannel.close();
+    }
+
+    private void load() throws IOException {
+        ByteBuffer all = ByteBuffer.allocate((int) listChannel.size());
+        while (all.hasRemaining()) {
+            if (listChannel.read(all, all.position()) < 0) {
+                break;
+            }
+        }
+        all.flip();
+        count = (int) Math.min(all.getLong(), all.remaining() / 8);
+        positions = new long[Math.max(16, count)];
+        for (int i = 0; i < count; i++) {
+            positions[i] = all.getLong();
+        }
+    }
+
+    private boolean isBlank(FileChannel data, long position) throws IOException {
+        idBuffer.clear();
+        while (idBuffer.hasRemaining()) {
+            if (data.read(idBuffer, position + idBuffer.position()) < 0) {
+                return false;
+            }
+        }
+        return idBuffer.getInt(0) == 0;
+    }
+
+    /** Decides whether the record at a position is blank, for callers that see writes not yet in the file. */
+    public interface BlankCheck {
+        boolean isBlank(long position) throws IOException;
+    }
+
+    private void writeCount() throws IOException {
+        entry.clear();
+        entry.putLong(count).flip();
+        write(entry, 0);
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            listChannel.write(buffer, position + buffer.position());
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *
+ * This is a phonetic and trigram index for fuzzy surname search
+ *
+ * */
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the distinct surnames on file for finding the ones closest to a misspelt or
+ * differently spelt query. Each surname is folded first: accents (such as the fada) are dropped,
+ * only the letters are kept and a leading Mac becomes Mc, so that O Briain, O'Briain and
+ * OBriain, or MacCarthy and McCarthy, are the same to the index. It is then listed under its Double Metaphone codes
+ * and under each three-letter run (trigram) of its folded form.
+ *
+ * search() gathers the surnames that sound like the query or share trigrams with it, computes
+ * the edit distance to the few hundred that share the most, and returns the closest. The work
+ * depends on the number of distinct surnames, not employees, and takes well under a
+ * millisecond for tens of thousands of them.
+ *
+ * Surnames whose last employee has gone stay in the index with a count of zero and are
+ * skipped, so that one who comes back costs nothing.
+ */
+public class FuzzySurnameIndex {
+    private static final int CANDIDATES = 256;     // surnames sharing most trigrams whose distance is computed
+    private static final int MAX_CANDIDATES = 4 * CANDIDATES;  // bound when many share as many trigrams
+    private static final int LETTERS = 27;        // '$' padding and A-Z in a trigram
+
+    private final Map<String, Integer> ids = new HashMap<>();  // surname (SurnameIndex.normalize) -> id
+    private String[] names = new String[16];      // by id
+    private String[] folded = new String[16];
+    private int[] counts = new int[16];           // employees with the surname
+    private int size;
+    private final Map<String, Postings> byCode = new HashMap<>();                  // Double Metaphone code -> ids
+    private final Postings[] byTrigram = new Postings[LETTERS * LETTERS * LETTERS];  // trigram of a folded name -> ids
+    // Scratch space of search(), by id; only the entries it touched are non-zero between searches
+    private int[] shared = new int[16];
+    private boolean[] soundsAlike = new boolean[16];
+    private int[] touched = new int[16];
+
+    /** A surname reduced to what the index compares: A-Z only, no accents, Mac as Mc. */
+    public static String fold(String surname) {
+        if (surname == null) {
+            return "";
+        }
+        String plain = Normalizer.normalize(surname, Normalizer.Form.NFD);
+        StringBuilder letters = new StringBuilder(plain.length());
+        for (int i = 0; i < plain.length(); i++) {
+            char c = Character.toUpperCase(plain.charAt(i));
+            if (c >= 'A' && c <= 'Z') {
+                letters.append(c);
+            }
+        }
+        if (letters.length() >= 6 && letters.indexOf("MAC") == 0) {
+            letters.delete(1, 2);  // MacNamara and McNamara; short names such as Macey are left alone
+        }
+        return letters.toString();
+    }
+
+    /** Count one more employee with the surname. */
+    public synchronized void add(String surname) {
+        String name = SurnameIndex.normalize(surname);
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = insert(name);
+        }
+        if (id >= 0) {
+            counts[id]++;
+        }
+    }
+
+    /** Count one more employee for each of the first count surnames, taking the lock once. */
+    public synchronized void addAll(String[] surnames, int count) {
+        for (int i = 0; i < count; i++) {
+            add(surnames[i]);
+        }
+    }
+
+    /** Count one employee fewer with the surname. */
+    public synchronized void remove(String surname) {
+        Integer id = ids.get(SurnameIndex.normalize(surname));
+        if (id != null && id >= 0 && counts[id] > 0) {
+            counts[id]--;
+        }
+    }
+
+    /**
+     * Up to limit surnames on file closest to the query, closest first: by edit distance
+     * between the folded forms, then sounding alike, then sharing more trigrams. A surname
+     * further than a third of the query's length away is left out unless it sounds alike.
+     */
+    public synchronized List<String> search(String query, int limit) {
+        String wanted = fold(query);
+        List<String> closest = new ArrayList<>();
+        if (wanted.isEmpty() || limit <= 0) {
+            return closest;
+        }
+        int touchedCount = 0;
+        for (String code : DoubleMetaphone.encode(wanted)) {
+            Postings postings = code.isEmpty() ? null : byCode.get(code);
+            for (int i = 0; postings != null && i < postings.size; i++) {
+                int id = postings.ids[i];
+                if (!soundsAlike[id] && shared[id] == 0) {
+                    touched[touchedCount++] = id;
+                }
+                soundsAlike[id] = true;
+            }
+        }
+        int trigrams = 0;
+        String padded = "$$" + wanted + "$";
+        for (int at = 0; at + 3 <= padded.length(); at++, trigrams++) {
+            Postings postings = byTrigram[trigram(padded, at)];
+            for (int i = 0; postings != null && i < postings.size; i++) {
+                int id = postings.ids[i];
+                if (!soundsAlike[id] && shared[id] == 0) {
+                    touched[touchedCount++] = id;
+                }
+                shared[id]++;
+            }
+        }
+
+        // Keep the surnames sharing the most trigrams (and all that sound alike), found with a histogram
+        int[] sharing = new int[trigrams + 2];
+        for (int i = 0; i < touchedCount; i++) {
+            sharing[shared[touched[i]]]++;
+        }
+        int threshold = trigrams + 1;
+        for (int seen = 0; threshold > 1 && seen < CANDIDATES; ) {
+            seen += sharing[--threshold];
+        }
+        int maxDistance = Math.max(2, wanted.length() / 3);
+        List<Candidate> candidates = new ArrayList<>();
+        int[][] rows = new int[3][wanted.length() + 1];
+        for (int pass = 0; pass < 2; pass++) {
+            // Those sharing the most trigrams first, then those that only sound alike
+            for (int i = 0; i < touchedCount && candidates.size() < MAX_CANDIDATES; i++) {
+                int id = touched[i];
+                if (counts[id] == 0 || (shared[id] >= threshold) != (pass == 0) || (pass == 1 && !soundsAlike[id])
+                        || (!soundsAlike[id] && Math.abs(folded[id].length() - wanted.length()) > maxDistance)) {
+                    continue;  // the length alone puts it too far away
+                }
+                int distance = editDistance(wanted, folded[id], rows);
+                if (distance <= maxDistance || soundsAlike[id]) {
+                    candidates.add(new Candidate(id, distance, soundsAlike[id], shared[id]));
+                }
+            }
+        }
+        candidates.sort((a, b) -> {
+            if (a.distance != b.distance) {
+                return Integer.compare(a.distance, b.distance);
+            } else if (a.soundsAlike != b.soundsAlike) {
+                return a.soundsAlike ? -1 : 1;
+            } else if (a.shared != b.shared) {
+                return Integer.compare(b.shared, a.shared);
+            }
+            return names[a.id].compareTo(names[b.id]);
+        });
+        for (int i = 0; i < candidates.size() && closest.size() < limit; i++) {
+            closest.add(names[candidates.get(i).id]);
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            shared[touched[i]] = 0;
+            soundsAlike[touched[i]] = false;
+        }
+        return closest;
+    }
+
+    /** Utility: Give a new surname an id and list it under its codes and trigrams; -1 if it has no letters. */
+    private int insert(String name) {
+        String letters = fold(name);
+        if (letters.isEmpty()) {
+            ids.put(name, -1);
+            return -1;
+        }
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            folded = Arrays.copyOf(folded, id * 2);
+            counts = Arrays.copyOf(counts, id * 2);
+            shared = Arrays.copyOf(shared, id * 2);
+            soundsAlike = Arrays.copyOf(soundsAlike, id * 2);
+            touched = Arrays.copyOf(touched, id * 2);
+        }
+        names[id] = name;
+        folded[id] = letters;
+        ids.put(name, id);
+        for (String code : DoubleMetaphone.encode(letters)) {
+            if (!code.isEmpty()) {
+                byCode.computeIfAbsent(code, c -> new Postings()).add(id);
+            }
+        }
+        String padded = "$$" + letters + "$";
+        for (int at = 0; at + 3 <= padded.length(); at++) {
+            int trigram = trigram(padded, at);
+            if (byTrigram[trigram] == null) {
+                byTrigram[trigram] = new Postings();
+            }
+            byTrigram[trigram].add(id);
+        }
+        return id;
+    }
+
+    /** Utility: Number of the trigram starting at the index of a padded folded name. */
+    private static int trigram(String padded, int at) {
+        int number = 0;
+        for (int i = at; i < at + 3; i++) {
+            char c = padded.charAt(i);
+            number = number * LETTERS + (c == '$' ? 0 : c - 'A' + 1);
+        }
+        return number;
+    }
+
+    /** Utility: Edits (insert, delete, substitute or swap two neighbours) turning a into b; rows is scratch space. */
+    private static int editDistance(String a, String b, int[][] rows) {
+        int[] beforeLast = rows[0];
+        int[] last = rows[1];
+        int[] current = rows[2];
+        for (int i = 0; i <= a.length(); i++) {
+            last[i] = i;
+        }
+        for (int j = 1; j <= b.length(); j++) {
+            current[0] = j;
+            for (int i = 1; i <= a.length(); i++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int best = Math.min(Math.min(current[i - 1] + 1, last[i] + 1), last[i - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    best = Math.min(best, beforeLast[i - 2] + 1);  // Brien and Brein
+                }
+                current[i] = best;
+            }
+            int[] spare = beforeLast;
+            beforeLast = last;
+            last = current;
+            current = spare;
+        }
+        return last[a.length()];
+    }
+
+    /** Ids of the surnames listed under one code or trigram, in ascending order. */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;  // a name with the same trigram twice, or both codes equal
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /** A surname considered for a search, with what it is ranked by. */
+    private static final class Candidate {
+        final int id;
+        final int distance;
+        final boolean soundsAlike;
+        final int shared;
+
+        Candidate(int id, int distance, boolean soundsAlike, int shared) {
+            this.id = id;
+            this.distance = distance;
+            this.soundsAlike = soundsAlike;
+            this.shared = shared;
+        }
+    }
+}
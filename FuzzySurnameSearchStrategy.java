@@ -0,0 +1,39 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/** Fuzzy surname search: the closest surnames from a FuzzySurnameIndex, expanded through a SurnameIndex of list positions. */
+public class FuzzySurnameSearchStrategy implements SearchStrategy, MultiSearchStrategy {
+    private final FuzzySurnameIndex fuzzyIndex;
+    private final SurnameIndex surnameIndex;
+    private final int limit;  // most employees returned by searchAll
+
+    public FuzzySurnameSearchStrategy(FuzzySurnameIndex fuzzyIndex, SurnameIndex surnameIndex, int limit) {
+        this.fuzzyIndex = fuzzyIndex;
+        this.surnameIndex = surnameIndex;
+        this.limit = limit;
+    }
+
+    @Override
+    public Employee search(String query, List<Employee> employees) {
+        List<Employee> matches = searchAll(query, employees);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    @Override
+    public List<Employee> searchAll(String query, List<Employee> employees) {
+        List<Employee> matches = new ArrayList<>();
+        if (query == null || query.trim().isEmpty()) {
+            return matches;
+        }
+        // Closest surname first; employees sharing a surname in list order
+        for (String surname : fuzzyIndex.search(query, limit)) {
+            for (long position : surnameIndex.exact(surname)) {
+                Employee emp = employees.get((int) position);
+                if (emp != null && matches.size() < limit) {
+                    matches.add(emp);
+                }
+            }
+        }
+        return matches;
+    }
+}
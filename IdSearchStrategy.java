@@ -1,6 +1,19 @@
 import java.util.List;
+import java.util.Map;
 
 public class IdSearchStrategy implements SearchStrategy {
+    private final Map<Integer, Integer> slotsById;  // employee ID -> list index, or null to scan the list
+
+    /** Strategy that scans the list for the employee with the given ID. */
+    public IdSearchStrategy() {
+        this(null);
+    }
+
+    /** Strategy that looks the ID up in a directory of list indexes. */
+    public IdSearchStrategy(Map<Integer, Integer> slotsById) {
+        this.slotsById = slotsById;
+    }
+
     @Override
     public Employee search(String query, List<Employee> employees) {
         if (query == null || query.trim().isEmpty()) {
@@ -8,11 +21,19 @@ public class IdSearchStrategy implements SearchStrategy {
         }
         try {
             int id = Integer.parseInt(query.trim());
-            if (id < 1 || id > employees.size()) {
+            if (id < 1) {
                 return null;
             }
-            // Convert to zero-based index for list access
-            return employees.get(id - 1);
+            if (slotsById != null) {
+                Integer index = slotsById.get(id);
+                return index == null ? null : employees.get(index);
+            }
+            for (Employee emp : employees) {
+                if (emp != null && emp.getId() == id) {
+                    return emp;
+                }
+            }
+            return null;
         } catch (NumberFormatException e) {
             return null;
         }
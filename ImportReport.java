@@ -0,0 +1,78 @@
+/*
+ *
+ * This is the outcome of a bulk employee import
+ *
+ * */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts of imported and rejected rows, the reason for each reject, and the import rate.
+ * Rows are numbered from 1: the line number for a CSV file, the position for an Iterable.
+ */
+public class ImportReport {
+    private long imported;
+    private final List<Reject> rejects = new ArrayList<>();
+    private long elapsedNanos;
+
+    /** A row that was not imported and why. */
+    public static class Reject {
+        private final long row;
+        private final String reason;
+
+        public Reject(long row, String reason) {
+            this.row = row;
+            this.reason = reason;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "row " + row + ": " + reason;
+        }
+    }
+
+    void recordImported(long rows) {
+        imported += rows;
+    }
+
+    void recordReject(long row, String reason) {
+        rejects.add(new Reject(row, reason));
+    }
+
+    void finish(long startNanos) {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public List<Reject> getRejects() {
+        return Collections.unmodifiableList(rejects);
+    }
+
+    public double getSeconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    /** Rows processed per second, imported and rejected together. */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : (imported + rejects.size()) / getSeconds();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Imported %d rows, rejected %d, in %.2f s (%.0f rows/s)",
+                imported, rejects.size(), getSeconds(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/** Surname search backed by a SurnameIndex whose positions are indexes into the employee list. */
+public class IndexedSurnameSearchStrategy implements SearchStrategy, MultiSearchStrategy {
+    private final SurnameIndex index;
+    private final boolean prefix;  // match surnames starting with the query instead of equal to it
+
+    public IndexedSurnameSearchStrategy(SurnameIndex index, boolean prefix) {
+        this.index = index;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Employee search(String query, List<Employee> employees) {
+        List<Employee> matches = searchAll(query, employees);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    @Override
+    public List<Employee> searchAll(String query, List<Employee> employees) {
+        List<Employee> matches = new ArrayList<>();
+        if (query == null || query.trim().isEmpty()) {
+            return matches;
+        }
+        long[] positions = prefix ? index.prefix(query) : index.exact(query);
+        for (long position : positions) {
+            Employee emp = employees.get((int) position);
+            if (emp != null) {
+                matches.add(emp);
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *
+ * This is a lock-free latency histogram with HDR-style log-linear buckets
+ *
+ * */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in nanoseconds into buckets that are exact below 32 ns and then split
+ * every power of two into 16 equal parts, so any recorded value is known to within about 6%
+ * from 1 ns up to about 18 minutes (longer values land in the last bucket). Recording is one
+ * bit scan and one atomic increment; percentiles are computed from a copy of the counts.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 16;                 // buckets per power of two
+    private static final int LINEAR = 2 * SUB_BUCKETS;         // values below this have a bucket each
+    private static final int MAX_MAGNITUDE = 40;               // 2^40 ns is about 18 minutes
+    static final int BUCKETS = LINEAR + (MAX_MAGNITUDE - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /** Count one latency. */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+    }
+
+    /** Copy of the bucket counts, e.g. to compute percentiles or the difference from an earlier copy. */
+    public long[] snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    /** Zero every bucket. Latencies recorded at the same time may or may not survive. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /** Latency in nanoseconds at or below which the given percent of the counted latencies fall; 0 if none. */
+    public static long percentile(long[] counts, double percent) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return highestValueOf(bucket);
+            }
+        }
+        return highestValueOf(counts.length - 1);
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < LINEAR) {
+            return (int) Math.max(nanos, 0);
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);  // nanos is in [2^magnitude, 2^(magnitude+1))
+        int shift = magnitude - 4;                               // keeps the top 5 bits: 16..31
+        int bucket = LINEAR + (shift - 1) * SUB_BUCKETS + (int) (nanos >>> shift) - SUB_BUCKETS;
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR) / SUB_BUCKETS + 1;
+        long top = SUB_BUCKETS + (bucket - LINEAR) % SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *
+ * This is a memory-mapped, read-only view of an employee record file
+ *
+ * */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads take no lock, so any number of threads can read at once: they work on the current
+ * array of segments, which is replaced as a whole only when the file has grown past it.
+ */
+public class MappedRecordStore {
+    // Each full segment holds a whole number of records; the last segment is remapped as the file grows
+    static final int RECORDS_PER_SEGMENT = 1 << 16;
+    static final long SEGMENT_SIZE = (long) RECORDS_PER_SEGMENT * RandomAccessEmployeeRecord.SIZE;
+
+    private final FileChannel channel;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    public MappedRecordStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ensureMapped(channel.size());
+    }
+
+    /** Current length of the underlying file in bytes. */
+    public long length() throws IOException {
+        return channel.size();
+    }
+
+    /** Decode the record starting at the given byte position into the supplied record. */
+    public void read(long byteToStart, RandomAccessEmployeeRecord record) throws IOException {
+        MappedByteBuffer[] mapped = mappedTo(byteToStart + RandomAccessEmployeeRecord.SIZE);
+        int segment = (int) (byteToStart / SEGMENT_SIZE);
+        int position = (int) (byteToStart % SEGMENT_SIZE);
+
+        ByteBuffer view;
+        if (position + RandomAccessEmployeeRecord.SIZE <= mapped[segment].limit()) {
+            view = mapped[segment].duplicate();
+            view.position(position);
+        } else {
+            // Record straddles two segments (file does not start on a record boundary); read it directly
+            view = ByteBuffer.allocate(RandomAccessEmployeeRecord.SIZE);
+            while (view.hasRemaining()) {
+                if (channel.read(view, byteToStart + view.position()) < 0)
+                    throw new EOFException();
+            }
+            view.flip();
+        }
+        record.read(view);
+    }
+
+    /** Point the cursor at the record starting at the given byte position, without copying it. */
+    public RecordCursor cursor(long byteToStart, RecordCursor cursor) throws IOException {
+        MappedByteBuffer[] mapped = mappedTo(byteToStart + RandomAccessEmployeeRecord.SIZE);
+        int segment = (int) (byteToStart / SEGMENT_SIZE);
+        int position = (int) (byteToStart % SEGMENT_SIZE);
+        if (position + RandomAccessEmployeeRecord.SIZE <= mapped[segment].limit())
+            return cursor.at(mapped[segment], position);
+
+        // Record straddles two segments; read a copy of it
+        ByteBuffer copy = ByteBuffer.allocate(RandomAccessEmployeeRecord.SIZE);
+        while (copy.hasRemaining()) {
+            if (channel.read(copy, byteToStart + copy.position()) < 0)
+                throw new EOFException();
+        }
+        return cursor.at(copy, 0);
+    }
+
+    /** Drop every mapping, so the file can be replaced once they are collected; a later read maps it again. */
+    public synchronized void release() {
+        segments = new MappedByteBuffer[0];
+    }
+
+    /** Segments covering the file up to at least the given end position. */
+    private MappedByteBuffer[] mappedTo(long end) throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        return end <= mappedLength(mapped) ? mapped : ensureMapped(end);
+    }
+
+    /** Map any part of the file, up to the given end position, that was appended since the last call. */
+    private synchronized MappedByteBuffer[] ensureMapped(long end) throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        long mappedLength = mappedLength(mapped);
+        if (end <= mappedLength)
+            return mapped;
+        long size = channel.size();
+        if (end > size)
+            throw new EOFException();
+
+        // Drop a partially filled last segment so it can be mapped again at its new size
+        int full = (int) (mappedLength / SEGMENT_SIZE);
+        mapped = Arrays.copyOf(mapped, (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE));
+        for (int segment = full; segment < mapped.length; segment++) {
+            long start = segment * SEGMENT_SIZE;
+            mapped[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+        segments = mapped;  // readers holding the old array keep using its still valid mappings
+        return mapped;
+    }
+
+    private static long mappedLength(MappedByteBuffer[] mapped) {
+        return mapped.length == 0 ? 0 : (mapped.length - 1) * SEGMENT_SIZE + mapped[mapped.length - 1].limit();
+    }
+}
@@ -0,0 +1,11 @@
+import java.util.List;
+
+public interface MultiSearchStrategy {
+    /**
+     * Searches for every Employee in the given list that matches some criterion.
+     * @param query the search query (e.g. a surname or surname prefix)
+     * @param employees the list of all employees (null entries represent empty records)
+     * @return the matching Employees, or an empty list if none match
+     */
+    List<Employee> searchAll(String query, List<Employee> employees);
+}
@@ -0,0 +1,153 @@
+/*
+ *
+ * This is a bitmap of which record slots hold an employee
+ *
+ * */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * One bit per record slot, set while the slot holds an employee and clear for blank
+ * (deleted) slots. A summary word has one bit per 64-slot word that has any bit set, so
+ * next() and previous() skip 4096 empty slots per summary word looked at: stepping past a
+ * long run of deleted records costs about the same as stepping to a neighbour.
+ */
+public class OccupancyBitmap {
+    private static final int BATCH = 256;  // records read per call when scanning
+
+    private long[] words = new long[1];
+    private long[] summary = new long[1];  // bit w set when words[w] != 0
+
+    /** Bitmap of the slots in the employee file whose ID is not 0. */
+    public static OccupancyBitmap scan(FileChannel data) throws IOException {
+        OccupancyBitmap bitmap = new OccupancyBitmap();
+        EmployeeRecordCodec scanCodec = new EmployeeRecordCodec(BATCH);
+        int slot = 0;
+        while (true) {
+            ByteBuffer block = scanCodec.readBatch(data, slotPosition(slot), BATCH);
+            if (!block.hasRemaining()) {
+                break;
+            }
+            for (int at = 0; at < block.limit(); at += EmployeeRecordCodec.SIZE, slot++) {
+                if (block.getInt(at) != 0) {
+                    bitmap.set(slot);
+                }
+            }
+        }
+        return bitmap;
+    }
+
+    /** Slot number of a record position in the employee file. */
+    public static int slotOf(long position) {
+        return (int) ((position - EmployeeFileFormat.FIRST_RECORD) / EmployeeRecordCodec.SIZE);
+    }
+
+    /** Record position of a slot number in the employee file. */
+    public static long slotPosition(int slot) {
+        return EmployeeFileFormat.FIRST_RECORD + (long) slot * EmployeeRecordCodec.SIZE;
+    }
+
+    /** Mark the slot as holding an employee. */
+    public synchronized void set(int slot) {
+        int word = slot >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            summary = Arrays.copyOf(summary, (words.length + 63) >>> 6);
+        }
+        words[word] |= 1L << slot;
+        summary[word >>> 6] |= 1L << word;
+    }
+
+    /** Mark the slot as blank. */
+    public synchronized void clear(int slot) {
+        int word = slot >>> 6;
+        if (word < words.length) {
+            words[word] &= ~(1L << slot);
+            if (words[word] == 0) {
+                summary[word >>> 6] &= ~(1L << word);
+            }
+        }
+    }
+
+    /** True if the slot holds an employee. */
+    public synchronized boolean get(int slot) {
+        int word = slot >>> 6;
+        return word < words.length && (words[word] & 1L << slot) != 0;
+    }
+
+    /** Lowest occupied slot at or after from, or -1 if there is none. */
+    public synchronized int next(int from) {
+        from = Math.max(from, 0);
+        int word = from >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & -1L << from;
+        if (bits == 0) {
+            word = nextWord(word + 1);
+            if (word < 0) {
+                return -1;
+            }
+            bits = words[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /** Highest occupied slot at or before from, or -1 if there is none. */
+    public synchronized int previous(int from) {
+        if (from < 0) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits;
+        if (word >= words.length) {
+            word = words.length - 1;
+            bits = words[word];
+        } else {
+            bits = words[word] & -1L >>> (63 - (from & 63));
+        }
+        if (bits == 0) {
+            word = previousWord(word - 1);
+            if (word < 0) {
+                return -1;
+            }
+            bits = words[word];
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+    }
+
+    // Lowest non-empty word at or after from, found through the summary
+    private int nextWord(int from) {
+        int index = from >>> 6;
+        if (index >= summary.length) {
+            return -1;
+        }
+        long bits = summary[index] & -1L << from;
+        while (bits == 0) {
+            if (++index == summary.length) {
+                return -1;
+            }
+            bits = summary[index];
+        }
+        return (index << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    // Highest non-empty word at or before from, found through the summary
+    private int previousWord(int from) {
+        if (from < 0) {
+            return -1;
+        }
+        int index = from >>> 6;
+        long bits = summary[index] & -1L >>> (63 - (from & 63));
+        while (bits == 0) {
+            if (--index < 0) {
+                return -1;
+            }
+            bits = summary[index];
+        }
+        return (index << 6) + 63 - Long.numberOfLeadingZeros(bits);
+    }
+}
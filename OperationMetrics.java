@@ -0,0 +1,98 @@
+/*
+ *
+ * This is the count, error count and latency histogram of one storage operation
+ *
+ * */
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics for one operation of one storage component, such as the reads of EmployeeDAO.
+ * Callers take System.nanoTime() before the operation and pass it to record() after it, and
+ * call failed() as well when the operation ran into an error. Both only touch striped or
+ * atomic counters, so recording costs a few tens of nanoseconds and never blocks.
+ *
+ * Instances come from StorageMetrics, which registers them with JMX and logs them.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /** Component and operation, e.g. "EmployeeDAO.read". */
+    public String getName() {
+        return name;
+    }
+
+    /** Count an operation that started at the given System.nanoTime() and has just finished. */
+    public void record(long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        latencies.record(nanos);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /** Count an operation that failed; call record() for it too so its time is counted. */
+    public void failed() {
+        errors.increment();
+    }
+
+    /** Copy of the latency histogram's buckets (see LatencyHistogram.percentile). */
+    public long[] latencySnapshot() {
+        return latencies.snapshot();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long operations = count.sum();
+        return operations == 0 ? 0 : totalNanos.sum() / 1e3 / operations;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return LatencyHistogram.percentile(latencies.snapshot(), 50) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return LatencyHistogram.percentile(latencies.snapshot(), 99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return LatencyHistogram.percentile(latencies.snapshot(), 99.9) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1e3;
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        count.reset();
+        errors.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+}
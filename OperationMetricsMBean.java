@@ -0,0 +1,29 @@
+/*
+ *
+ * This is the JMX view of one storage operation's metrics
+ *
+ * */
+
+/**
+ * Attributes and operations shown for each storage operation under
+ * employee:type=StorageMetrics,component=...,operation=... (e.g. in JConsole). Counts and
+ * latencies cover everything since the JVM started or since the last reset.
+ */
+public interface OperationMetricsMBean {
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    /** Start counting afresh. */
+    void reset();
+}
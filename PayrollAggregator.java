@@ -0,0 +1,149 @@
+/*
+ *
+ * This is the parallel payroll aggregation over the employee file
+ *
+ * */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Splits the records of the employee file into record-aligned ranges and scans them in
+ * parallel on a fork-join pool. Each leaf reads its range with positional reads into its own
+ * buffer, so leaves never share a file cursor. Salary, full-time flag and department are read
+ * straight from the record bytes; a leaf matches departments against the raw chars it has
+ * already seen, so no String is made per record. Partial reports are merged on the way back up.
+ */
+public class PayrollAggregator extends RecursiveTask<PayrollReport> {
+    private static final long serialVersionUID = 1L;
+    private static final long LEAF_RECORDS = 1 << 15;  // ranges this small are scanned, not split
+    private static final int READ_RECORDS = 4096;      // records read per call within a leaf
+    private static final int DEPARTMENT_CHARS = EmployeeRecordCodec.NAME_LENGTH;
+
+    private final transient FileChannel data;  // tasks are never serialized; the channel could not be anyway
+    private final long firstRecord;  // record numbers, counted from EmployeeFileFormat.FIRST_RECORD
+    private final long endRecord;
+
+    private PayrollAggregator(FileChannel data, long firstRecord, long endRecord) {
+        this.data = data;
+        this.firstRecord = firstRecord;
+        this.endRecord = endRecord;
+    }
+
+    /** Aggregate the whole file on the common fork-join pool. */
+    public static PayrollReport aggregate(FileChannel data) throws IOException {
+        return aggregate(data, ForkJoinPool.commonPool());
+    }
+
+    /** Aggregate the whole file on the given pool (its parallelism sets the number of threads). */
+    public static PayrollReport aggregate(FileChannel data, ForkJoinPool pool) throws IOException {
+        long records = Math.max(0, (data.size() - EmployeeFileFormat.FIRST_RECORD) / EmployeeRecordCodec.SIZE);
+        try {
+            return pool.invoke(new PayrollAggregator(data, 0, records));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    protected PayrollReport compute() {
+        if (endRecord - firstRecord <= LEAF_RECORDS) {
+            try {
+                return scan();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        long middle = (firstRecord + endRecord) >>> 1;
+        PayrollAggregator left = new PayrollAggregator(data, firstRecord, middle);
+        PayrollAggregator right = new PayrollAggregator(data, middle, endRecord);
+        left.fork();
+        PayrollReport report = right.compute();
+        report.merge(left.join());
+        return report;
+    }
+
+    // Scan this task's range; departments are kept as raw chars until the range is done
+    private PayrollReport scan() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * EmployeeRecordCodec.SIZE);
+        char[][] departments = new char[8][];
+        PayrollStats[][] partials = new PayrollStats[8][];  // [department][full time ? 1 : 0]
+        int departmentCount = 0;
+        PayrollReport report = new PayrollReport();
+
+        long record = firstRecord;
+        while (record < endRecord) {
+            int wanted = (int) Math.min(READ_RECORDS, endRecord - record);
+            long position = EmployeeFileFormat.FIRST_RECORD + record * EmployeeRecordCodec.SIZE;
+            buffer.clear().limit(wanted * EmployeeRecordCodec.SIZE);
+            while (buffer.hasRemaining()) {
+                if (data.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            int read = buffer.position() / EmployeeRecordCodec.SIZE;
+            for (int i = 0; i < read; i++) {
+                int at = i * EmployeeRecordCodec.SIZE;
+                if (buffer.getInt(at + EmployeeRecordCodec.ID_AT) == 0) {
+                    continue;
+                }
+                int department = findDepartment(buffer, at, departments, departmentCount);
+                if (department < 0) {
+                    if (departmentCount == departments.length) {
+                        departments = Arrays.copyOf(departments, departmentCount * 2);
+                        partials = Arrays.copyOf(partials, departmentCount * 2);
+                    }
+                    departments[departmentCount] = departmentChars(buffer, at);
+                    partials[departmentCount] = new PayrollStats[] {new PayrollStats(), new PayrollStats()};
+                    department = departmentCount++;
+                }
+                int fullTime = buffer.get(at + EmployeeRecordCodec.FULL_TIME_AT) != 0 ? 1 : 0;
+                partials[department][fullTime].add(buffer.getDouble(at + EmployeeRecordCodec.SALARY_AT));
+            }
+            if (read < wanted) {
+                break;  // file shrank under us
+            }
+            record += read;
+        }
+
+        // Name each department once per leaf and fold its partial into the leaf's report
+        for (int d = 0; d < departmentCount; d++) {
+            String name = new String(departments[d]).replace('\0', ' ').trim();
+            for (int fullTime = 0; fullTime < 2; fullTime++) {
+                PayrollStats partial = partials[d][fullTime];
+                report.department(name).merge(partial);
+                report.getOverall().merge(partial);
+                (fullTime == 1 ? report.getFullTime() : report.getPartTime()).merge(partial);
+            }
+        }
+        return report;
+    }
+
+    private static int findDepartment(ByteBuffer buffer, int at, char[][] departments, int count) {
+        int from = at + EmployeeRecordCodec.DEPARTMENT_AT;
+        for (int d = 0; d < count; d++) {
+            char[] known = departments[d];
+            int c = 0;
+            while (c < DEPARTMENT_CHARS && buffer.getChar(from + 2 * c) == known[c]) {
+                c++;
+            }
+            if (c == DEPARTMENT_CHARS) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    private static char[] departmentChars(ByteBuffer buffer, int at) {
+        char[] chars = new char[DEPARTMENT_CHARS];
+        for (int c = 0; c < DEPARTMENT_CHARS; c++) {
+            chars[c] = buffer.getChar(at + EmployeeRecordCodec.DEPARTMENT_AT + 2 * c);
+        }
+        return chars;
+    }
+}
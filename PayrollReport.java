@@ -0,0 +1,71 @@
+/*
+ *
+ * This is the payroll summary produced by PayrollAggregator
+ *
+ * */
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Payroll over every live record, broken down by department and by full-time status.
+ * Partial reports for parts of the file are combined with merge().
+ */
+public class PayrollReport {
+    private final PayrollStats overall = new PayrollStats();
+    private final PayrollStats fullTime = new PayrollStats();
+    private final PayrollStats partTime = new PayrollStats();
+    private final Map<String, PayrollStats> byDepartment = new TreeMap<>();
+
+    /** Count one employee. */
+    public void add(String department, boolean isFullTime, double salary) {
+        department(department).add(salary);
+        (isFullTime ? fullTime : partTime).add(salary);
+        overall.add(salary);
+    }
+
+    /** Fold another partial report into this one. */
+    public void merge(PayrollReport other) {
+        overall.merge(other.overall);
+        fullTime.merge(other.fullTime);
+        partTime.merge(other.partTime);
+        for (Map.Entry<String, PayrollStats> entry : other.byDepartment.entrySet()) {
+            department(entry.getKey()).merge(entry.getValue());
+        }
+    }
+
+    /** Stats for the named department, created empty if it has none yet. */
+    PayrollStats department(String department) {
+        return byDepartment.computeIfAbsent(department, name -> new PayrollStats());
+    }
+
+    public PayrollStats getOverall() {
+        return overall;
+    }
+
+    public PayrollStats getFullTime() {
+        return fullTime;
+    }
+
+    public PayrollStats getPartTime() {
+        return partTime;
+    }
+
+    /** Stats per department, in department name order. */
+    public Map<String, PayrollStats> getByDepartment() {
+        return Collections.unmodifiableMap(byDepartment);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("All: ").append(overall).append('\n');
+        text.append("Full time: ").append(fullTime).append('\n');
+        text.append("Part time: ").append(partTime).append('\n');
+        for (Map.Entry<String, PayrollStats> entry : byDepartment.entrySet()) {
+            text.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+}
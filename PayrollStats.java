@@ -0,0 +1,64 @@
+/*
+ *
+ * This is a running payroll total for one group of employees
+ *
+ * */
+
+/**
+ * Headcount, total, minimum and maximum salary of a group. Partial results from different
+ * parts of the file are combined with merge().
+ */
+public class PayrollStats {
+    private long count;
+    private double total;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /** Count one employee with the given salary. */
+    public void add(double salary) {
+        count++;
+        total += salary;
+        if (salary < min) {
+            min = salary;
+        }
+        if (salary > max) {
+            max = salary;
+        }
+    }
+
+    /** Fold another partial result into this one. */
+    public void merge(PayrollStats other) {
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    /** Lowest salary, or 0 when the group is empty. */
+    public double getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /** Highest salary, or 0 when the group is empty. */
+    public double getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("headcount %d, total %.2f, average %.2f, min %.2f, max %.2f",
+                count, total, getAverage(), getMin(), getMax());
+    }
+}
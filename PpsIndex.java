@@ -0,0 +1,312 @@
+/*
+ *
+ * This is a persistent hash index from PPS Number to record position
+ *
+ * */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open-addressing (linear probing) hash table stored in a memory-mapped file next to the
+ * employee file ("employees.dat" gets "employees.dat.pps"). Each slot holds a 64-bit hash of
+ * the normalized PPS Number and the byte position of its record; a hit is confirmed by
+ * reading that record, so hash collisions never give a wrong answer.
+ *
+ * The header records the length and modification time of the employee file and a dirty flag
+ * that is set while a mutation is in progress. If the index is missing, was written by an
+ * interrupted update, or does not match the employee file, it is rebuilt with one scan.
+ * Only one writer may have the index open at a time.
+ */
+public class PpsIndex implements Closeable {
+    private static final int MAGIC = 0x50505331;  // "PPS1"
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;  // long hash + long record position
+    private static final int MIN_CAPACITY = 1024;
+    private static final long EMPTY = 0;
+    private static final long DELETED = 1;
+
+    // Header field positions
+    private static final int CAPACITY_AT = 4;
+    private static final int USED_AT = 8;
+    private static final int DIRTY_AT = 12;
+    private static final int DATA_LENGTH_AT = 16;
+    private static final int DATA_MODIFIED_AT = 24;
+
+    private final Path dataPath;
+    private final FileChannel data;
+    private final FileChannel indexChannel;
+    private final WriteAheadLog log;  // writes not yet in the employee file, may be null
+    private final EmployeeRecordCodec codec = new EmployeeRecordCodec();
+    private final RandomAccessEmployeeRecord probe = new RandomAccessEmployeeRecord();
+    private MappedByteBuffer map;
+    private int capacity;
+    private int used;  // live plus deleted slots
+
+    private PpsIndex(Path dataPath, FileChannel data, FileChannel indexChannel, WriteAheadLog log) {
+        this.dataPath = dataPath;
+        this.data = data;
+        this.indexChannel = indexChannel;
+        this.log = log;
+    }
+
+    /** Open the index for the given employee file, rebuilding it first if it is missing or stale. */
+    public static PpsIndex open(Path dataPath, FileChannel data) throws IOException {
+        return open(dataPath, data, null);
+    }
+
+    /** Open the index, confirming hits against the log's pending writes before the employee file. */
+    public static PpsIndex open(Path dataPath, FileChannel data, WriteAheadLog log) throws IOException {
+        Path indexPath = dataPath.resolveSibling(dataPath.getFileName() + ".pps");
+        FileChannel indexChannel = FileChannel.open(indexPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        PpsIndex index = new PpsIndex(dataPath, data, indexChannel, log);
+        if (!index.load()) {
+            index.rebuild();
+        }
+        return index;
+    }
+
+    /** Normalize a PPS Number the way records are compared: trimmed and upper case. */
+    public static String normalize(String pps) {
+        return pps == null ? "" : pps.trim().toUpperCase();
+    }
+
+    /** Position of the record holding the given PPS Number, or -1 if no record has it. */
+    public synchronized long find(String pps) throws IOException {
+        String key = normalize(pps);
+        if (key.isEmpty()) {
+            return -1;
+        }
+        long hash = hash(key);
+        for (int slot = home(hash); ; slot = next(slot)) {
+            long stored = map.getLong(slotAt(slot));
+            if (stored == EMPTY) {
+                return -1;
+            }
+            if (stored == hash) {
+                long byteStart = map.getLong(slotAt(slot) + 8);
+                if (keyAt(byteStart).equals(key)) {
+                    return byteStart;
+                }
+            }
+        }
+    }
+
+    /** Mark the index dirty before the employee file is changed. */
+    public synchronized void beginUpdate() {
+        map.putInt(DIRTY_AT, 1);
+    }
+
+    /** Record that the given PPS Number is now stored at the given position. */
+    public synchronized void put(String pps, long byteStart) throws IOException {
+        String key = normalize(pps);
+        if (key.isEmpty()) {
+            return;
+        }
+        if ((used + 1) * 10L > capacity * 6L) {
+            resize(capacity * 2);
+        }
+        insert(hash(key), byteStart);
+    }
+
+    /** Forget the given PPS Number if it is indexed at the given position. */
+    public synchronized void remove(String pps, long byteStart) {
+        String key = normalize(pps);
+        if (key.isEmpty()) {
+            return;
+        }
+        long hash = hash(key);
+        for (int slot = home(hash); ; slot = next(slot)) {
+            long stored = map.getLong(slotAt(slot));
+            if (stored == EMPTY) {
+                return;
+            }
+            if (stored == hash && map.getLong(slotAt(slot) + 8) == byteStart) {
+                map.putLong(slotAt(slot), DELETED);
+                return;
+            }
+        }
+    }
+
+    /** Stamp the index with the employee file's current state and clear the dirty flag. */
+    public synchronized void commit() throws IOException {
+        map.putInt(USED_AT, used);
+        map.putLong(DATA_LENGTH_AT, data.size());
+        map.putLong(DATA_MODIFIED_AT, Files.getLastModifiedTime(dataPath).toMillis());
+        map.putInt(DIRTY_AT, 0);
+    }
+
+    /** Rebuild the index from a full scan of the employee file. */
+    public synchronized void rebuild() throws IOException {
+        long records = data.size() / EmployeeRecordCodec.SIZE;
+        mapTable(tableCapacity(records));
+        map.putInt(DIRTY_AT, 1);
+
+        EmployeeRecordCodec scanCodec = new EmployeeRecordCodec(256);
+        long currentByte = EmployeeFileFormat.FIRST_RECORD;
+        while (true) {
+            ByteBuffer block = scanCodec.readBatch(data, currentByte, scanCodec.batchRecords());
+            if (!block.hasRemaining()) {
+                break;
+            }
+            while (block.hasRemaining()) {
+                probe.read(block);
+                String key = normalize(probe.getPps());
+                // Keep the first record for a PPS Number, as a front-to-back scan would find it
+                if (probe.getEmployeeId() > 0 && !key.isEmpty() && !contains(hash(key), key)) {
+                    insert(hash(key), currentByte);
+                }
+                currentByte += EmployeeRecordCodec.SIZE;
+            }
+        }
+        commit();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        map.force();
+        map = null;  // the mapping is released once collected
+        indexChannel.close();
+    }
+
+    // Load an existing index, returning false if it is missing, interrupted or out of date
+    private boolean load() throws IOException {
+        if (indexChannel.size() < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (indexChannel.read(header, header.position()) < 0) {
+                return false;
+            }
+        }
+        int storedCapacity = header.getInt(CAPACITY_AT);
+        if (header.getInt(0) != MAGIC
+                || header.getInt(DIRTY_AT) != 0
+                || Integer.bitCount(storedCapacity) != 1
+                || indexChannel.size() < HEADER_SIZE + (long) storedCapacity * SLOT_SIZE
+                || header.getLong(DATA_LENGTH_AT) != data.size()
+                || header.getLong(DATA_MODIFIED_AT) != Files.getLastModifiedTime(dataPath).toMillis()) {
+            return false;
+        }
+        capacity = storedCapacity;
+        used = header.getInt(USED_AT);
+        map = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        return true;
+    }
+
+    // Map a table of the given capacity with every slot empty. The file is only ever grown: the
+    // previous mapping stays live until it is collected, and Windows refuses to shrink a mapped file.
+    // Bytes past the table, left by a larger one, are ignored.
+    private void mapTable(int newCapacity) throws IOException {
+        long size = HEADER_SIZE + (long) newCapacity * SLOT_SIZE;
+        if (indexChannel.size() < size) {
+            indexChannel.write(ByteBuffer.allocate(1), size - 1);  // extend file; new bytes read as zero
+        }
+        map = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        map.putInt(DIRTY_AT, 1);  // before the old table is wiped
+        byte[] zeros = new byte[64 * SLOT_SIZE];
+        ByteBuffer slots = map.duplicate();
+        slots.position(HEADER_SIZE);
+        while (slots.hasRemaining()) {
+            slots.put(zeros, 0, Math.min(zeros.length, slots.remaining()));
+        }
+        map.putInt(0, MAGIC);
+        map.putInt(CAPACITY_AT, newCapacity);
+        capacity = newCapacity;
+        used = 0;
+    }
+
+    // Rehash live entries into a table of the given capacity, dropping deleted slots
+    private void resize(int newCapacity) throws IOException {
+        long[] hashes = new long[capacity];
+        long[] positions = new long[capacity];
+        int live = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            long stored = map.getLong(slotAt(slot));
+            if (stored != EMPTY && stored != DELETED) {
+                hashes[live] = stored;
+                positions[live++] = map.getLong(slotAt(slot) + 8);
+            }
+        }
+        mapTable(newCapacity);
+        map.putInt(DIRTY_AT, 1);
+        for (int i = 0; i < live; i++) {
+            insert(hashes[i], positions[i]);
+        }
+    }
+
+    // Add or replace the slot for the given hash and key at the given position
+    private void insert(long hash, long byteStart) {
+        int slot = home(hash);
+        while (true) {
+            long stored = map.getLong(slotAt(slot));
+            if (stored == EMPTY || stored == DELETED) {
+                break;
+            }
+            slot = next(slot);
+        }
+        if (map.getLong(slotAt(slot)) == EMPTY) {
+            used++;
+        }
+        map.putLong(slotAt(slot), hash);
+        map.putLong(slotAt(slot) + 8, byteStart);
+    }
+
+    private boolean contains(long hash, String key) throws IOException {
+        for (int slot = home(hash); ; slot = next(slot)) {
+            long stored = map.getLong(slotAt(slot));
+            if (stored == EMPTY) {
+                return false;
+            }
+            if (stored == hash && keyAt(map.getLong(slotAt(slot) + 8)).equals(key)) {
+                return true;
+            }
+        }
+    }
+
+    // Normalized PPS Number of the record stored at the given position
+    private String keyAt(long byteStart) throws IOException {
+        if (byteStart + EmployeeRecordCodec.SIZE > data.size()) {
+            return "";
+        }
+        if (log == null || !log.overlay(byteStart, probe)) {
+            codec.read(data, byteStart, probe);
+        }
+        return probe.getEmployeeId() > 0 ? normalize(probe.getPps()) : "";
+    }
+
+    private static int tableCapacity(long records) {
+        long wanted = Math.max(MIN_CAPACITY, records * 2);
+        return (int) Long.highestOneBit(wanted - 1) << 1;
+    }
+
+    // 64-bit FNV-1a hash, never equal to the EMPTY or DELETED markers
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return (h == EMPTY || h == DELETED) ? h + 2 : h;
+    }
+
+    private int home(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+
+    private int next(int slot) {
+        return (slot + 1) & (capacity - 1);
+    }
+
+    private static int slotAt(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
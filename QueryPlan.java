@@ -0,0 +1,121 @@
+/*
+ *
+ * This is the plan chosen for an EmployeeQuery, which runs it and explains it
+ *
+ * */
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * How EmployeeController will answer a query: where the candidate employees come from (an
+ * index lookup or a scan of every slot), how many that is estimated to be, and what the other
+ * access paths would have cost. Every candidate is then tested against the whole query.
+ *
+ * stream() runs the plan lazily: candidates are fetched a chunk at a time as the stream is
+ * consumed, and the plan counts how many were examined and how many matched, so describe()
+ * shows afterwards both the choice and what it cost.
+ */
+public class QueryPlan {
+    private final EmployeeQuery query;
+    private final String accessPath;
+    private final long estimatedRows;
+    private final long totalRows;
+    private final String alternatives;
+    private final Supplier<Iterator<Employee>> candidates;
+    private final LongAdder examined = new LongAdder();
+    private final LongAdder matched = new LongAdder();
+
+    QueryPlan(EmployeeQuery query, String accessPath, long estimatedRows, long totalRows, String alternatives,
+            Supplier<Iterator<Employee>> candidates) {
+        this.query = query;
+        this.accessPath = accessPath;
+        this.estimatedRows = estimatedRows;
+        this.totalRows = totalRows;
+        this.alternatives = alternatives;
+        this.candidates = candidates;
+    }
+
+    /** Where candidates come from, e.g. surname index, prefix "O'" or scan of all slots. */
+    public String getAccessPath() {
+        return accessPath;
+    }
+
+    /** Candidates the access path was expected to produce when the plan was made. */
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /** Candidates tested so far by streams of this plan. */
+    public long getExamined() {
+        return examined.sum();
+    }
+
+    /** Matches returned so far by streams of this plan. */
+    public long getMatched() {
+        return matched.sum();
+    }
+
+    /**
+     * The matching employees, read as the stream is consumed. The order is that of the access
+     * path: ID order, surname order or slot order. Changes made while the stream is open may or
+     * may not be seen, but each employee returned matched the query when it was read.
+     */
+    public Stream<Employee> stream() {
+        Iterator<Employee> source = candidates.get();
+        Iterator<Employee> matches = new Iterator<Employee>() {
+            private Employee next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && source.hasNext()) {
+                    Employee candidate = source.next();
+                    examined.increment();
+                    if (query.test(candidate)) {
+                        matched.increment();
+                        next = candidate;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Employee next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Employee emp = next;
+                next = null;
+                return emp;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(matches,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * The plan in one line, e.g.
+     * surname index, prefix "O'": ~120 of 5000 employees (rejected: scan ~5000); filter: ...; examined 120, matched 7
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder(accessPath)
+                .append(": ~").append(estimatedRows).append(" of ").append(totalRows).append(" employees");
+        if (!alternatives.isEmpty()) {
+            text.append(" (rejected: ").append(alternatives).append(')');
+        }
+        text.append("; filter: ").append(query);
+        text.append("; examined ").append(getExamined()).append(", matched ").append(getMatched());
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+}
@@ -6,6 +6,7 @@
 
 import java.io.RandomAccessFile;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public class RandomAccessEmployeeRecord extends Employee
 {  
@@ -27,55 +28,22 @@ public class RandomAccessEmployeeRecord extends Employee
    // Read a record from specified RandomAccessFile
    public void read( RandomAccessFile file ) throws IOException
    {
-	   	setEmployeeId(file.readInt());
-		setPps(readName(file));
-		setSurname(readName(file));
-		setFirstName(readName(file));
-		setGender(file.readChar());
-		setDepartment(readName(file));
-		setSalary(file.readDouble());
-		setFullTime(file.readBoolean());
+      long position = file.getFilePointer();
+      new EmployeeRecordCodec().read(file.getChannel(), position, this);
+      file.seek(position + SIZE);
    } // end read
 
-   // Ensure that string is correct length
-   private String readName( RandomAccessFile file ) throws IOException
+   // Read a record from specified buffer, starting at its current position
+   public void read( ByteBuffer buffer )
    {
-      char name[] = new char[ 20 ], temp;
-
-      for ( int count = 0; count < name.length; count++ )
-      {
-         temp = file.readChar();
-         name[ count ] = temp;
-      } // end for     
-      
-      return new String( name ).replace( '\0', ' ' );
-   } // end readName
+      EmployeeRecordCodec.decode(buffer, this);
+   } // end read
 
    // Write a record to specified RandomAccessFile
    public void write( RandomAccessFile file ) throws IOException
    {
-      file.writeInt( getEmployeeId() );
-      writeName(file, getPps().toUpperCase());
-      writeName( file, getSurname().toUpperCase() );
-      writeName( file, getFirstName().toUpperCase() );
-      file.writeChar(getGender());
-      writeName(file,getDepartment());
-      file.writeDouble( getSalary() );
-      file.writeBoolean(getFullTime());
+      long position = file.getFilePointer();
+      new EmployeeRecordCodec().write(file.getChannel(), position, this);
+      file.seek(position + SIZE);
    } // end write
-
-   // Ensure that string is correct length
-   private void writeName( RandomAccessFile file, String name )
-      throws IOException
-   {
-      StringBuffer buffer = null;
-
-      if ( name != null ) 
-         buffer = new StringBuffer( name );
-      else 
-         buffer = new StringBuffer( 20 );
-
-      buffer.setLength( 20 );
-      file.writeChars( buffer.toString() );
-   } // end writeName
-} // end class RandomAccessEmployeeRecord
\ No newline at end of file
+} // end class RandomAccessEmployeeRecord
@@ -7,6 +7,8 @@
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 
 import javax.swing.JOptionPane;
@@ -14,6 +16,25 @@ import javax.swing.JOptionPane;
 public class RandomFile {
 	private RandomAccessFile output;
 	private RandomAccessFile input;
+	private MappedRecordStore mappedInput;// memory-mapped view of input, null unless opened mapped
+	private final EmployeeRecordCodec codec = new EmployeeRecordCodec();// single record writes
+	// Codecs for reads, one per thread so reads never share a buffer or a file position
+	private final ThreadLocal<EmployeeRecordCodec> readCodec = ThreadLocal.withInitial(EmployeeRecordCodec::new);
+	private final ThreadLocal<EmployeeRecordCodec> scanCodec = ThreadLocal
+			.withInitial(() -> new EmployeeRecordCodec(SCAN_BATCH));// batched reads for full scans
+	private static final int SCAN_BATCH = 256;// records decoded per read when scanning whole file
+	private PpsIndex ppsIndex;// PPS Number index kept with the write file, null if it could not be opened
+	private FreeSlotList freeSlots;// positions of deleted records, reused before appending
+	private static final int CACHE_RECORDS = 1024;// decoded records kept by readRecords
+	private final RecordCache cache = new RecordCache(CACHE_RECORDS);
+	private OccupancyBitmap occupied = new OccupancyBitmap();// slots holding a record, rebuilt when read file opened
+	// Counts and latencies of each operation, shared by all RandomFiles and shown over JMX
+	private static final OperationMetrics READ_METRICS = StorageMetrics.operation("RandomFile", StorageMetrics.READ);
+	private static final OperationMetrics ADD_METRICS = StorageMetrics.operation("RandomFile", StorageMetrics.ADD);
+	private static final OperationMetrics UPDATE_METRICS = StorageMetrics.operation("RandomFile", StorageMetrics.UPDATE);
+	private static final OperationMetrics DELETE_METRICS = StorageMetrics.operation("RandomFile", StorageMetrics.DELETE);
+	private static final OperationMetrics PPS_CHECK_METRICS = StorageMetrics.operation("RandomFile",
+			StorageMetrics.PPS_CHECK);
 
 	// Create new file
 	public void createFile(String fileName) {
@@ -22,6 +43,7 @@ public class RandomFile {
 		try // open file for reading and writing
 		{
 			file = new RandomAccessFile(fileName, "rw");
+			EmployeeFileFormat.prepare(file.getChannel());// write header to new file
 
 		} // end try
 		catch (IOException ioException) {
@@ -45,7 +67,10 @@ public class RandomFile {
 	public void openWriteFile(String fileName) {
 		try // open file
 		{
+			EmployeeFileFormat.prepare(Paths.get(fileName));// add header or migrate legacy layout
 			output = new RandomAccessFile(fileName, "rw");
+			ppsIndex = PpsIndex.open(Paths.get(fileName), output.getChannel());// rebuilt if missing or stale
+			freeSlots = FreeSlotList.open(Paths.get(fileName), output.getChannel());
 		} // end try
 		catch (IOException ioException) {
 			JOptionPane.showMessageDialog(null, "File does not exist!");
@@ -56,6 +81,12 @@ public class RandomFile {
 	public void closeWriteFile() {
 		try // close file and exit
 		{
+			if (ppsIndex != null)
+				ppsIndex.close();
+			if (freeSlots != null)
+				freeSlots.close();
+			ppsIndex = null;
+			freeSlots = null;
 			if (output != null)
 				output.close();
 		} // end try
@@ -67,78 +98,135 @@ public class RandomFile {
 
 	// Add records to file
 	public long addRecords(Employee employeeToAdd) {
-		Employee newEmployee = employeeToAdd;
-		long currentRecordStart = 0;
+		long start = System.nanoTime();
 
-		// object to be written to file
-		RandomAccessEmployeeRecord record;
+		try {
+			return add(employeeToAdd);
+		} // end try
+		finally {
+			ADD_METRICS.record(start);
+		} // end finally
+	}// end addRecords
+
+	// Write record to free position or end of file, return its position
+	private long add(Employee employeeToAdd) {
+		long recordStart = -1;// position where object starts in the file, -1 if it was not added
+		long position = -1;
+		boolean reused = false;// position was taken from the free list
+		boolean written = false;
 
 		try // output values to file
 		{
-			record = new RandomAccessEmployeeRecord(newEmployee.getEmployeeId(), newEmployee.getPps(),
-					newEmployee.getSurname(), newEmployee.getFirstName(), newEmployee.getGender(),
-					newEmployee.getDepartment(), newEmployee.getSalary(), newEmployee.getFullTime());
-
-			output.seek(output.length());// Look for proper position
-			record.write(output);// Write object to file
-			currentRecordStart = output.length();
+			// Look for proper position - a deleted record if there is one, else end of file
+			position = freeSlots != null ? freeSlots.poll(output.getChannel()) : -1;
+			reused = position >= 0;
+			if (!reused)
+				position = output.length();
+			beginIndexUpdate(position);
+			codec.write(output.getChannel(), position, employeeToAdd);// Write object to file
+			written = true;
+			cache.invalidate(position);
+			markOccupied(position, employeeToAdd);
+			endIndexUpdate(null, employeeToAdd, position);
+			recordStart = position;
 		} // end try
 		catch (IOException ioException) {
+			ADD_METRICS.failed();
+			if (reused && !written)
+				returnFreeSlot(position);// the slot is still blank
 			JOptionPane.showMessageDialog(null, "Error writing to file!");
 		} // end catch
 
-		return currentRecordStart - RandomAccessEmployeeRecord.SIZE;// Return
-																	// position
-																	// where
-																	// object
-																	// starts in
-																	// the file
-	}// end addRecords
+		return recordStart;
+	}// end add
+
+	// Put a free slot an add took but did not fill back on the list
+	private void returnFreeSlot(long position) {
+		try {
+			freeSlots.add(position);
+		} // end try
+		catch (IOException e) {
+			e.printStackTrace();// slot is only lost to reuse until the list is next rebuilt
+		} // end catch
+	}// end returnFreeSlot
 
 	// Change details for existing object
 	public void changeRecords(Employee newDetails, long byteToStart) {
-		long currentRecordStart = byteToStart;
-		// object to be written to file
-		RandomAccessEmployeeRecord record;
-		Employee oldDetails = newDetails;
+		long start = System.nanoTime();
+
+		try {
+			change(newDetails, byteToStart);
+		} // end try
+		finally {
+			UPDATE_METRICS.record(start);
+		} // end finally
+	}// end changeRecords
+
+	// Overwrite record at specified position
+	private void change(Employee newDetails, long byteToStart) {
 		try // output values to file
 		{
-			record = new RandomAccessEmployeeRecord(oldDetails.getEmployeeId(), oldDetails.getPps(),
-					oldDetails.getSurname(), oldDetails.getFirstName(), oldDetails.getGender(),
-					oldDetails.getDepartment(), oldDetails.getSalary(), oldDetails.getFullTime());
-
-			output.seek(currentRecordStart);// Look for proper position
-			record.write(output);// Write object to file
+			Employee oldDetails = beginIndexUpdate(byteToStart);
+			codec.write(output.getChannel(), byteToStart, newDetails);// Write object to file at proper position
+			cache.invalidate(byteToStart);
+			markOccupied(byteToStart, newDetails);
+			endIndexUpdate(oldDetails, newDetails, byteToStart);
 		} // end try
 		catch (IOException ioException) {
+			UPDATE_METRICS.failed();
 			JOptionPane.showMessageDialog(null, "Error writing to file!");
 		} // end catch
-	}// end changeRecors
+	}// end change
 
 	// Delete existing object
 	public void deleteRecords(long byteToStart) {
-		long currentRecordStart = byteToStart;
+		long start = System.nanoTime();
 
-		// object to be written to file
-		RandomAccessEmployeeRecord record;
-		;
+		try {
+			delete(byteToStart);
+		} // end try
+		finally {
+			DELETE_METRICS.record(start);
+		} // end finally
+	}// end deleteRecords
 
+	// Blank record at specified position
+	private void delete(long byteToStart) {
 		try // output values to file
 		{
-			record = new RandomAccessEmployeeRecord();// Create empty object
-			output.seek(currentRecordStart);// Look for proper position
-			record.write(output);// Replace existing object with empty object
+			// Replace existing object with empty object
+			Employee oldDetails = beginIndexUpdate(byteToStart);
+			codec.write(output.getChannel(), byteToStart, new RandomAccessEmployeeRecord());
+			cache.invalidate(byteToStart);
+			markOccupied(byteToStart, null);
+			endIndexUpdate(oldDetails, null, byteToStart);
+			// Make position available for next added record
+			if (freeSlots != null && oldDetails != null && oldDetails.getEmployeeId() > 0)
+				freeSlots.add(byteToStart);
 		} // end try
 		catch (IOException ioException) {
+			DELETE_METRICS.failed();
 			JOptionPane.showMessageDialog(null, "Error writing to file!");
 		} // end catch
-	}// end deleteRecords
+	}// end delete
 
 	// Open file for reading
 	public void openReadFile(String fileName) {
+		openReadFile(fileName, false);
+	} // end method openFile
+
+	// Open file for reading, optionally decoding records straight from a memory-mapped view
+	public void openReadFile(String fileName, boolean memoryMapped) {
 		try // open file
 		{
 			input = new RandomAccessFile(fileName, "r");
+			cache.clear();// file may have been changed by someone else since it was last read
+			// Only files in current format can be read
+			if (EmployeeFileFormat.detect(input.getChannel()) != EmployeeFileFormat.Layout.CURRENT)
+				throw new IOException("Unsupported layout");
+			EmployeeFileFormat.checkHeader(input.getChannel());
+			occupied = OccupancyBitmap.scan(input.getChannel());// navigation skips deleted records
+			mappedInput = memoryMapped ? new MappedRecordStore(input.getChannel()) : null;
 		} // end try
 		catch (IOException ioException) {
 			JOptionPane.showMessageDialog(null, "File is not suported!");
@@ -149,6 +237,7 @@ public class RandomFile {
 	public void closeReadFile() {
 		try // close file and exit
 		{
+			mappedInput = null;
 			if (input != null)
 				input.close();
 		} // end try
@@ -160,134 +249,206 @@ public class RandomFile {
 
 	// Get position of first record in file
 	public long getFirst() {
-		long byteToStart = 0;
-
-		try {// try to get file
-			input.length();
-		} // end try
-		catch (IOException e) {
-		}// end catch
-		
-		return byteToStart;
+		return occupiedPosition(occupied.next(0));
 	}// end getFirst
 
 	// Get position of last record in file
 	public long getLast() {
-		long byteToStart = 0;
-
-		try {// try to get position of last record
-			byteToStart = input.length() - RandomAccessEmployeeRecord.SIZE;
-		}// end try 
-		catch (IOException e) {
-		}// end catch
-
-		return byteToStart;
-	}// end getFirst
+		return occupiedPosition(occupied.previous(Integer.MAX_VALUE));
+	}// end getLast
 
-	// Get position of next record in file
+	// Get position of next record in file, skipping deleted records
 	public long getNext(long readFrom) {
-		long byteToStart = readFrom;
+		int slot = occupied.next(OccupancyBitmap.slotOf(readFrom) + 1);
 
-		try {// try to read from file
-			input.seek(byteToStart);// Look for proper position in file
-			// if next position is end of file go to start of file, else get next position
-			if (byteToStart + RandomAccessEmployeeRecord.SIZE == input.length())
-				byteToStart = 0;
-			else
-				byteToStart = byteToStart + RandomAccessEmployeeRecord.SIZE;
-		} // end try
-		catch (NumberFormatException e) {
-		} // end catch
-		catch (IOException e) {
-		}// end catch
-		return byteToStart;
-	}// end getFirst
+		// if there is no record after this one go to first record
+		if (slot < 0)
+			slot = occupied.next(0);
+		return occupiedPosition(slot);
+	}// end getNext
 
-	// Get position of previous record in file
+	// Get position of previous record in file, skipping deleted records
 	public long getPrevious(long readFrom) {
-		long byteToStart = readFrom;
+		int slot = occupied.previous(OccupancyBitmap.slotOf(readFrom) - 1);
 
-		try {// try to read from file
-			input.seek(byteToStart);// Look for proper position in file
-			// if previous position is start of file go to end of file, else get previous position
-			if (byteToStart == 0)
-				byteToStart = input.length() - RandomAccessEmployeeRecord.SIZE;
-			else
-				byteToStart = byteToStart - RandomAccessEmployeeRecord.SIZE;
-		} // end try
-		catch (NumberFormatException e) {
-		} // end catch
-		catch (IOException e) {
-		}// end catch
-		return byteToStart;
+		// if there is no record before this one go to last record
+		if (slot < 0)
+			slot = occupied.previous(Integer.MAX_VALUE);
+		return occupiedPosition(slot);
 	}// end getPrevious
 
-	// Get object from file in specified position
+	// Get object from file in specified position, from the record cache when it holds it
 	public Employee readRecords(long byteToStart) {
-		Employee thisEmp = null;
+		long start = System.nanoTime();
+
+		try {
+			return read(byteToStart);
+		} // end try
+		finally {
+			READ_METRICS.record(start);
+		} // end finally
+	}// end readRecords
+
+	// Read record at specified position, from cache or file
+	private Employee read(long byteToStart) {
+		Employee thisEmp = cache.get(byteToStart);
+		if (thisEmp != null)
+			return thisEmp;
 		RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
 
 		try {// try to read file and get record
-			input.seek(byteToStart);// Look for proper position in file
-			record.read(input);// Read record from file
+			long stamp = cache.stamp(byteToStart);
+			readRecordAt(byteToStart, record);// Read record from file
+			cache.put(byteToStart, record, stamp);
 		} // end try
 		catch (IOException e) {
+			READ_METRICS.failed();
 		}// end catch
 		
 		thisEmp = record;
 
 		return thisEmp;
-	}// end readRecords
+	}// end read
 
 	// Check if PPS Number already in use
 	public boolean isPpsExist(String pps, long currentByteStart) {
-		RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
+		long start = System.nanoTime();
+
+		try {
+			return ppsExists(pps, currentByteStart);
+		} // end try
+		finally {
+			PPS_CHECK_METRICS.record(start);
+		} // end finally
+	}// end isPpsExist
+
+	// Look PPS Number up and report it when another record has it
+	private boolean ppsExists(String pps, long currentByteStart) {
 		boolean ppsExist = false;
-		long oldByteStart = currentByteStart;
-		long currentByte = 0;
 
 		try {// try to read from file and look for PPS Number
-			// Start from start of file and loop until PPS Number is found or search returned to start position
-			while (currentByte != input.length() && !ppsExist) {
-				//if PPS Number is in position of current object - skip comparison
-				if (currentByte != oldByteStart) {
-					input.seek(currentByte);// Look for proper position in file
-					record.read(input);// Get record from file
-					// If PPS Number already exist in other record display message and stop search
-					if (record.getPps().trim().equalsIgnoreCase(pps)) {
-						ppsExist = true;
-						JOptionPane.showMessageDialog(null, "PPS number already exist!");
-					}// end if
-				}// end if
-				currentByte = currentByte + RandomAccessEmployeeRecord.SIZE;
-			}// end while
+			long found;
+			if (ppsIndex != null)
+				found = ppsIndex.find(pps);// Look up PPS Number in index
+			else
+				// Start from start of file and loop until PPS Number is found, skipping the current object
+				found = findRecord((byteStart, record) -> byteStart != currentByteStart
+						&& !record.isBlank() && record.ppsEquals(pps));
+			if (found == currentByteStart)
+				found = -1;// PPS Number belongs to current object
+			// If PPS Number already exist in other record display message
+			if (found >= 0) {
+				ppsExist = true;
+				JOptionPane.showMessageDialog(null, "PPS number already exist!");
+			}// end if
 		} // end try
 		catch (IOException e) {
+			PPS_CHECK_METRICS.failed();
 		}// end catch
 
 		return ppsExist;
-	}// end isPpsExist
+	}// end ppsExists
 
 	// Check if any record contains valid ID - greater than 0
 	public boolean isSomeoneToDisplay() {
 		boolean someoneToDisplay = false;
-		long currentByte = 0;
-		RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
 
 		try {// try to read from file and look for ID
-			// Start from start of file and loop until valid ID is found or search returned to start position
-			while (currentByte != input.length() && !someoneToDisplay) {
-				input.seek(currentByte);// Look for proper position in file
-				record.read(input);// Get record from file
-				// If valid ID exist in stop search
-				if (record.getEmployeeId() > 0)
-					someoneToDisplay = true;
-				currentByte = currentByte + RandomAccessEmployeeRecord.SIZE;
-			}// end while
+			// Start from start of file and loop until valid ID is found
+			someoneToDisplay = findRecord((byteStart, record) -> !record.isBlank()) >= 0;
 		}// end try
 		catch (IOException e) {
 		}// end catch
 
 		return someoneToDisplay;
 	}// end isSomeoneToDisplay
+
+	// Hit and miss counters of the record cache behind readRecords
+	public RecordCache getRecordCache() {
+		return cache;
+	}// end getRecordCache
+
+	// Mark PPS index dirty before a write and return the record currently at specified position
+	private Employee beginIndexUpdate(long byteToStart) throws IOException {
+		RandomAccessEmployeeRecord oldDetails = null;
+
+		if (ppsIndex != null) {
+			if (byteToStart + RandomAccessEmployeeRecord.SIZE <= output.length()) {
+				oldDetails = new RandomAccessEmployeeRecord();
+				codec.read(output.getChannel(), byteToStart, oldDetails);
+			} // end if
+			ppsIndex.beginUpdate();
+		} // end if
+		return oldDetails;
+	}// end beginIndexUpdate
+
+	// Move PPS index entry from old to new details of record at specified position
+	private void endIndexUpdate(Employee oldDetails, Employee newDetails, long byteToStart) throws IOException {
+		if (ppsIndex != null) {
+			if (oldDetails != null && oldDetails.getEmployeeId() > 0)
+				ppsIndex.remove(oldDetails.getPps(), byteToStart);
+			if (newDetails != null && newDetails.getEmployeeId() > 0)
+				ppsIndex.put(newDetails.getPps(), byteToStart);
+			ppsIndex.commit();
+		} // end if
+	}// end endIndexUpdate
+
+	// Read record at specified position, from the mapped view when the file was opened mapped
+	private void readRecordAt(long byteToStart, RandomAccessEmployeeRecord record) throws IOException {
+		if (mappedInput != null)
+			mappedInput.read(byteToStart, record);
+		else
+			readCodec.get().read(input.getChannel(), byteToStart, record);
+	}// end readRecordAt
+
+	// Scan records from first record and return position of first one accepted by match, or -1
+	private long findRecord(RecordMatcher match) throws IOException {
+		RecordCursor cursor = new RecordCursor();// moved over raw record bytes, nothing decoded
+		long length = inputLength();
+		long currentByte = EmployeeFileFormat.FIRST_RECORD;
+
+		while (currentByte + RandomAccessEmployeeRecord.SIZE <= length) {
+			if (mappedInput != null) {
+				// Look at record in mapped file in place
+				if (match.matches(currentByte, mappedInput.cursor(currentByte, cursor)))
+					return currentByte;
+				currentByte = currentByte + RandomAccessEmployeeRecord.SIZE;
+			} // end if
+			else {
+				// Get next block of records from file with one read and look at them in turn
+				ByteBuffer block = scanCodec.get().readBatch(input.getChannel(), currentByte, SCAN_BATCH);
+				if (!block.hasRemaining())
+					break;
+				for (int at = 0; at < block.limit(); at += RandomAccessEmployeeRecord.SIZE) {
+					if (match.matches(currentByte, cursor.at(block, at)))
+						return currentByte;
+					currentByte = currentByte + RandomAccessEmployeeRecord.SIZE;
+				} // end for
+			} // end else
+		} // end while
+		return -1;
+	}// end findRecord
+
+	// Test applied to each record by findRecord
+	private interface RecordMatcher {
+		boolean matches(long byteStart, RecordCursor record);
+	}// end interface RecordMatcher
+
+	// Record the slot at specified position as holding details, or as blank when details are null or blank
+	private void markOccupied(long byteToStart, Employee details) {
+		if (details != null && details.getEmployeeId() > 0)
+			occupied.set(OccupancyBitmap.slotOf(byteToStart));
+		else
+			occupied.clear(OccupancyBitmap.slotOf(byteToStart));
+	}// end markOccupied
+
+	// Get position of an occupied slot, or of first record when there is none (slot -1)
+	private static long occupiedPosition(int slot) {
+		return slot < 0 ? EmployeeFileFormat.FIRST_RECORD : OccupancyBitmap.slotPosition(slot);
+	}// end occupiedPosition
+
+	// Get length of file being read
+	private long inputLength() throws IOException {
+		return mappedInput != null ? mappedInput.length() : input.length();
+	}// end inputLength
 }// end class RandomFile
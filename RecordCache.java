@@ -0,0 +1,148 @@
+/*
+ *
+ * This is a bounded LRU cache of decoded employee records
+ *
+ * */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decoded records keyed by their byte position in the employee file. The cache is split into
+ * segments, each an access-ordered LinkedHashMap under its own lock, so threads reading
+ * different records rarely wait for each other; each segment evicts its least recently used
+ * record once it is full. Records are copied on the way in and out, so callers may modify
+ * what they get back.
+ *
+ * A reader takes a stamp before reading the file and passes it to put(); if the position was
+ * invalidated in between, the put is dropped, so a slow reader can never cache a record that
+ * a writer has already replaced.
+ */
+public class RecordCache {
+    private static final int SEGMENTS = 16;  // power of two
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static class Segment extends LinkedHashMap<Long, Employee> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        private long invalidations;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Employee> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /** Create a cache holding about the given number of records. */
+    public RecordCache(int capacity) {
+        int perSegment = Math.max(1, capacity / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /** Copy of the cached record at the given position, or null on a miss. */
+    public Employee get(long position) {
+        Segment segment = segmentFor(position);
+        Employee cached;
+        synchronized (segment) {
+            cached = segment.get(position);
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(cached);
+    }
+
+    /** Stamp to take before reading the record at the given position from the file. */
+    public long stamp(long position) {
+        Segment segment = segmentFor(position);
+        synchronized (segment) {
+            return segment.invalidations;
+        }
+    }
+
+    /** Cache a record read from the file, unless its position was invalidated since the stamp was taken. */
+    public void put(long position, Employee record, long stamp) {
+        Segment segment = segmentFor(position);
+        Employee copy = copy(record);
+        synchronized (segment) {
+            if (segment.invalidations == stamp) {
+                segment.put(position, copy);
+            }
+        }
+    }
+
+    /** Forget the record at the given position; call after it is written. */
+    public void invalidate(long position) {
+        Segment segment = segmentFor(position);
+        synchronized (segment) {
+            segment.invalidations++;
+            segment.remove(position);
+        }
+    }
+
+    /** Forget every record, e.g. after positions have changed. */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.invalidations++;
+                segment.clear();
+            }
+        }
+    }
+
+    /** Number of records currently cached. */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** Share of lookups served from the cache, between 0 and 1. */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d records, %d hits, %d misses (%.1f%% hit rate)",
+                size(), getHits(), getMisses(), getHitRate() * 100);
+    }
+
+    private Segment segmentFor(long position) {
+        long record = position / EmployeeRecordCodec.SIZE;
+        return segments[(int) (record ^ (record >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static Employee copy(Employee e) {
+        return new RandomAccessEmployeeRecord(e.getEmployeeId(), e.getPps(), e.getSurname(), e.getFirstName(),
+                e.getGender(), e.getDepartment(), e.getSalary(), e.getFullTime());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *
+ * This is the compaction job that rewrites an employee file without deleted records
+ *
+ * */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class RecordCompactor {
+    private static final int BATCH = 256;  // records moved per read and per write
+
+    // One daemon thread so compaction never keeps the application alive or runs twice at once
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "employee-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private RecordCompactor() {
+    }
+
+    /** Compact the DAO's file on a background thread; the future yields the number of bytes reclaimed. */
+    public static Future<Long> compactInBackground(EmployeeDAO dao) {
+        return EXECUTOR.submit(dao::compact);
+    }
+
+    /**
+     * Write a header to target and copy every live (non-zero ID) record from source after it,
+     * in file order; return the number of bytes left behind.
+     */
+    static long copyLiveRecords(FileChannel source, FileChannel target) throws IOException {
+        EmployeeRecordCodec reader = new EmployeeRecordCodec(BATCH);
+        ByteBuffer out = ByteBuffer.allocate(BATCH * EmployeeRecordCodec.SIZE);
+        long sourceLength = source.size();
+        EmployeeFileFormat.writeHeader(target);
+        long readFrom = EmployeeFileFormat.FIRST_RECORD;
+        long writeTo = EmployeeFileFormat.FIRST_RECORD;
+
+        while (true) {
+            ByteBuffer block = reader.readBatch(source, readFrom, BATCH);
+            if (!block.hasRemaining()) {
+                break;
+            }
+            readFrom += block.remaining();
+            out.clear();
+            for (int at = 0; at < block.limit(); at += EmployeeRecordCodec.SIZE) {
+                if (block.getInt(at) != 0) {
+                    out.put(block.array(), at, EmployeeRecordCodec.SIZE);
+                }
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                writeTo += target.write(out, writeTo);
+            }
+        }
+        target.truncate(writeTo);
+        return sourceLength - writeTo;
+    }
+}
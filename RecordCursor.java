@@ -0,0 +1,175 @@
+/*
+ *
+ * This is a flyweight view over the raw bytes of one employee record
+ *
+ * */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Points at a record inside a buffer (a batch read, a mapped segment or a log image) and reads
+ * its fields in place with absolute gets, so one cursor can be moved over every record of a
+ * scan without creating Strings or Employees. Name comparisons run on the stored chars:
+ * leading blanks and the '\0' or blank padding after a name are skipped, as trim() would.
+ * Only decode() and the String accessors allocate; call them once a record has matched.
+ *
+ * The cursor never moves the buffer's position, so several cursors may share a buffer.
+ */
+public final class RecordCursor {
+    private static final int NAME_LENGTH = EmployeeRecordCodec.NAME_LENGTH;
+
+    private ByteBuffer buffer;
+    private int base;
+
+    /** Point the cursor at the record starting at the given offset of the buffer. */
+    public RecordCursor at(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.base = offset;
+        return this;
+    }
+
+    public int id() {
+        return buffer.getInt(base + EmployeeRecordCodec.ID_AT);
+    }
+
+    /** Whether the record is deleted (ID 0). */
+    public boolean isBlank() {
+        return id() == 0;
+    }
+
+    public char gender() {
+        return buffer.getChar(base + EmployeeRecordCodec.GENDER_AT);
+    }
+
+    public double salary() {
+        return buffer.getDouble(base + EmployeeRecordCodec.SALARY_AT);
+    }
+
+    public boolean fullTime() {
+        return buffer.get(base + EmployeeRecordCodec.FULL_TIME_AT) != 0;
+    }
+
+    /** Whether the PPS Number equals the given one, ignoring case and surrounding blanks. */
+    public boolean ppsEquals(String pps) {
+        return fieldEquals(EmployeeRecordCodec.PPS_AT, pps);
+    }
+
+    /** Whether the surname equals the given one, ignoring case and surrounding blanks. */
+    public boolean surnameEqualsIgnoreCase(String surname) {
+        return fieldEquals(EmployeeRecordCodec.SURNAME_AT, surname);
+    }
+
+    /** Whether the surname starts with the given prefix, ignoring case and leading blanks. */
+    public boolean surnameStartsWithIgnoreCase(String prefix) {
+        return fieldStartsWith(EmployeeRecordCodec.SURNAME_AT, prefix);
+    }
+
+    /** Whether the department equals the given one, ignoring case and surrounding blanks. */
+    public boolean departmentEqualsIgnoreCase(String department) {
+        return fieldEquals(EmployeeRecordCodec.DEPARTMENT_AT, department);
+    }
+
+    /** Whether the department equals the given one exactly, ignoring surrounding blanks. */
+    public boolean departmentEquals(String department) {
+        return fieldEquals(EmployeeRecordCodec.DEPARTMENT_AT, department, false);
+    }
+
+    /** Copy the raw chars of a name field (PPS_AT, SURNAME_AT, ...) into the given array, which must hold 20. */
+    public void copyField(int fieldAt, char[] into) {
+        for (int i = 0; i < NAME_LENGTH; i++) {
+            into[i] = buffer.getChar(base + fieldAt + 2 * i);
+        }
+    }
+
+    /** PPS Number as a new trimmed String. */
+    public String pps() {
+        return field(EmployeeRecordCodec.PPS_AT);
+    }
+
+    /** Surname as a new trimmed String. */
+    public String surname() {
+        return field(EmployeeRecordCodec.SURNAME_AT);
+    }
+
+    /** First name as a new trimmed String. */
+    public String firstName() {
+        return field(EmployeeRecordCodec.FIRST_NAME_AT);
+    }
+
+    /** Department as a new trimmed String. */
+    public String department() {
+        return field(EmployeeRecordCodec.DEPARTMENT_AT);
+    }
+
+    /** Decode the whole record into the given employee. */
+    public void decode(Employee into) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(base);
+        EmployeeRecordCodec.decode(view, into);
+    }
+
+    // Compare a stored name with a value as trim().equalsIgnoreCase would
+    private boolean fieldEquals(int fieldAt, String value) {
+        return fieldEquals(fieldAt, value, true);
+    }
+
+    private boolean fieldEquals(int fieldAt, String value, boolean ignoreCase) {
+        int at = matchPrefix(fieldAt, value, ignoreCase);
+        if (at < 0) {
+            return false;
+        }
+        for (; at < NAME_LENGTH; at++) {
+            if (!isBlank(charAt(fieldAt, at))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fieldStartsWith(int fieldAt, String prefix) {
+        return matchPrefix(fieldAt, prefix, true) >= 0;
+    }
+
+    // Match the trimmed value against the stored name after its leading blanks; returns the
+    // index of the first stored char after the match, or -1 if it does not match
+    private int matchPrefix(int fieldAt, String value, boolean ignoreCase) {
+        int from = 0;
+        int to = value.length();
+        while (from < to && value.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && value.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        int at = 0;
+        while (at < NAME_LENGTH && isBlank(charAt(fieldAt, at)) && charAt(fieldAt, at) != '\0') {
+            at++;
+        }
+        if (to - from > NAME_LENGTH - at) {
+            return -1;
+        }
+        for (int i = from; i < to; i++, at++) {
+            char stored = charAt(fieldAt, at);
+            char wanted = value.charAt(i);
+            if (stored != wanted && (!ignoreCase || Character.toUpperCase(stored) != Character.toUpperCase(wanted)
+                    && Character.toLowerCase(stored) != Character.toLowerCase(wanted))) {
+                return -1;
+            }
+        }
+        return at;
+    }
+
+    private char charAt(int fieldAt, int index) {
+        return buffer.getChar(base + fieldAt + 2 * index);
+    }
+
+    private static boolean isBlank(char c) {
+        return c <= ' ';
+    }
+
+    private String field(int fieldAt) {
+        char[] chars = new char[NAME_LENGTH];
+        copyField(fieldAt, chars);
+        return new String(chars).replace('\0', ' ').trim();
+    }
+}
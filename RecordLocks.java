@@ -0,0 +1,65 @@
+/*
+ *
+ * This is a set of striped locks guarding single employee records
+ *
+ * */
+
+import java.io.IOException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Maps each record position to one of a fixed number of StampedLocks. A writer holds the write
+ * lock of its record's stripe, so writes to records on different stripes run in parallel.
+ * Readers do not block at all in the common case: read() takes an optimistic stamp, reads,
+ * and only if a writer of the same stripe got in between does it read again under the read lock.
+ *
+ * StampedLocks are not reentrant: a thread holding a stripe's write lock must not call read()
+ * for a record on that stripe.
+ */
+public class RecordLocks {
+    private static final int STRIPES = 64;  // power of two
+
+    private final StampedLock[] stripes = new StampedLock[STRIPES];
+
+    /** A read of one record; it may run more than once, so it must only fill in what it reads. */
+    public interface RecordRead {
+        void read() throws IOException;
+    }
+
+    public RecordLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new StampedLock();
+        }
+    }
+
+    /** The lock guarding the record at the given byte position. */
+    public StampedLock forRecord(long position) {
+        long record = position / EmployeeRecordCodec.SIZE;
+        return stripes[(int) (record ^ (record >>> 16)) & (STRIPES - 1)];
+    }
+
+    /** Run the read of the record at the given position so it never sees a half-written record. */
+    public void read(long position, RecordRead read) throws IOException {
+        StampedLock lock = forRecord(position);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                read.read();
+                if (lock.validate(stamp)) {
+                    return;
+                }
+            } catch (IOException | RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+                // A torn record can fail to decode; read it again below
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            read.read();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -49,8 +49,8 @@ public class SearchByIdDialog extends JDialog {
 
     private void onSearch() {
         String idText = idField.getText().trim();
-        if (!ValidationUtil.isValidId(idText, 100)) {
-            JOptionPane.showMessageDialog(this, "Please enter a valid numeric ID (1-100).");
+        if (!ValidationUtil.isValidId(idText)) {
+            JOptionPane.showMessageDialog(this, "Please enter a valid numeric ID (a positive whole number).");
             return;
         }
         int id = Integer.parseInt(idText);
@@ -1,15 +1,21 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.Arrays;
+import java.util.List;
 
 public class SearchBySurnameDialog extends JDialog {
     // Listener interface to handle surname search (implemented by controller)
     public interface SearchBySurnameListener {
         Employee onSearchBySurname(String surname);
+
+        // Closest surnames by sound and spelling, best first
+        List<Employee> onFuzzySearchBySurname(String surname);
     }
 
     private SearchBySurnameListener listener;
     private JTextField surnameField;
+    private JCheckBox fuzzyBox;
     private JButton searchButton;
     private JButton cancelButton;
 
@@ -31,12 +37,16 @@ public class SearchBySurnameDialog extends JDialog {
         surnameField = new JTextField(15);
         add(surnameField, gbc);
 
+        gbc.gridx = 1; gbc.gridy = 1;
+        fuzzyBox = new JCheckBox("Similar spellings and sounds");
+        add(fuzzyBox, gbc);
+
         searchButton = new JButton("Search");
         cancelButton = new JButton("Cancel");
         JPanel buttonPanel = new JPanel();
         buttonPanel.add(searchButton);
         buttonPanel.add(cancelButton);
-        gbc.gridx = 0; gbc.gridy = 1; gbc.gridwidth = 2; gbc.anchor = GridBagConstraints.CENTER;
+        gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 2; gbc.anchor = GridBagConstraints.CENTER;
         add(buttonPanel, gbc);
 
         // Button actions
@@ -53,6 +63,10 @@ public class SearchBySurnameDialog extends JDialog {
             JOptionPane.showMessageDialog(this, "Please enter a surname to search.");
             return;
         }
+        if (fuzzyBox.isSelected()) {
+            onFuzzySearch(surname);
+            return;
+        }
         Employee result = listener.onSearchBySurname(surname);
         if (result != null) {
             new EmployeeSummaryDialog((Frame) getParent(), result).setVisible(true);
@@ -61,4 +75,29 @@ public class SearchBySurnameDialog extends JDialog {
             JOptionPane.showMessageDialog(this, "No employee found with surname \"" + surname + "\".");
         }
     }
+
+    // Offer the closest matches and show the one picked
+    private void onFuzzySearch(String surname) {
+        List<Employee> matches = listener.onFuzzySearchBySurname(surname);
+        if (matches.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No employee found with a surname like \"" + surname + "\".");
+            return;
+        }
+        Employee result = matches.get(0);
+        if (matches.size() > 1) {
+            String[] choices = new String[matches.size()];
+            for (int i = 0; i < choices.length; i++) {
+                Employee emp = matches.get(i);
+                choices[i] = emp.getSurname() + ", " + emp.getFirstName() + " (ID " + emp.getEmployeeId() + ")";
+            }
+            Object choice = JOptionPane.showInputDialog(this, "Closest matches to \"" + surname + "\":",
+                    "Search By Surname", JOptionPane.QUESTION_MESSAGE, null, choices, choices[0]);
+            if (choice == null) {
+                return;  // cancelled; keep the dialog open to search again
+            }
+            result = matches.get(Arrays.asList(choices).indexOf(choice));
+        }
+        new EmployeeSummaryDialog((Frame) getParent(), result).setVisible(true);
+        dispose();
+    }
 }
@@ -0,0 +1,375 @@
+/*
+ *
+ * This is a compressed bitmap of record slots in the style of Roaring bitmaps
+ *
+ * */
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative slot numbers split by their high 16 bits into containers of up to
+ * 65536 values. A container holding at most 4096 values is a sorted char array (2 bytes a
+ * value); a fuller one is a 65536-bit bitmap (8 KB). Sparse sets therefore stay small, dense
+ * ones cost one bit a slot, and and(), or() and andNot() work container by container with
+ * merges or whole-word operations, so combining the sets of a million slots takes microseconds.
+ *
+ * Not thread-safe: the owner guards a bitmap that changes with its own lock. and(), or() and
+ * andNot() return new bitmaps and leave their operands alone.
+ */
+public class SlotBitmap {
+    private static final int ARRAY_LIMIT = 4096;  // a container with more values is a bitmap
+    private static final int WORDS = 1024;        // longs in a bitmap container
+
+    private char[] keys = new char[4];            // high 16 bits of each container, ascending
+    private Container[] containers = new Container[4];
+    private int size;                             // containers in use
+
+    /** Add a slot; returns false if it was already present. */
+    public boolean add(int slot) {
+        int at = find((char) (slot >>> 16));
+        if (at < 0) {
+            at = -at - 1;
+            insert(at, (char) (slot >>> 16), new Container());
+        }
+        return containers[at].add((char) slot);
+    }
+
+    /** Remove a slot; returns false if it was not present. */
+    public boolean remove(int slot) {
+        int at = find((char) (slot >>> 16));
+        if (at < 0 || !containers[at].remove((char) slot)) {
+            return false;
+        }
+        if (containers[at].cardinality == 0) {
+            System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+            System.arraycopy(containers, at + 1, containers, at, size - at - 1);
+            containers[--size] = null;
+        }
+        return true;
+    }
+
+    /** True if the slot is present. */
+    public boolean contains(int slot) {
+        int at = find((char) (slot >>> 16));
+        return at >= 0 && containers[at].contains((char) slot);
+    }
+
+    /** Number of slots present. */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].cardinality;
+        }
+        return total;
+    }
+
+    /** True if no slot is present. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Lowest slot present that is from or higher, or -1 if there is none. */
+    public int nextSlot(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        int at = find((char) (from >>> 16));
+        int low = from & 0xFFFF;
+        if (at < 0) {
+            at = -at - 1;
+            low = 0;
+        }
+        for (; at < size; at++, low = 0) {
+            int next = containers[at].next(low);
+            if (next >= 0) {
+                return keys[at] << 16 | next;
+            }
+        }
+        return -1;
+    }
+
+    /** Slots present in both bitmaps. */
+    public SlotBitmap and(SlotBitmap other) {
+        SlotBitmap result = new SlotBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.append(keys[i], Container.and(containers[i++], other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /** Slots present in either bitmap. */
+    public SlotBitmap or(SlotBitmap other) {
+        SlotBitmap result = new SlotBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i++].copy());
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j++].copy());
+            } else {
+                result.append(keys[i], Container.or(containers[i++], other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /** Slots present in this bitmap but not the other. */
+    public SlotBitmap andNot(SlotBitmap other) {
+        SlotBitmap result = new SlotBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            boolean overlap = j < other.size && other.keys[j] == keys[i];
+            result.append(keys[i], overlap ? Container.andNot(containers[i], other.containers[j]) : containers[i].copy());
+        }
+        return result;
+    }
+
+    /** Utility: Index of the container with the given key, or -(insertion point) - 1. */
+    private int find(char key) {
+        // Slots are mostly added in ascending order, so try the last container first
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /** Utility: Put a container at the given index. */
+    private void insert(int at, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(containers, at, containers, at + 1, size - at);
+        keys[at] = key;
+        containers[at] = container;
+        size++;
+    }
+
+    /** Utility: Add a container after all others, unless it is empty. */
+    private void append(char key, Container container) {
+        if (container.cardinality > 0) {
+            insert(size, key, container);
+        }
+    }
+
+    /** The low 16 bits of the slots that share one high 16 bits: a sorted array or a bitmap. */
+    private static final class Container {
+        char[] values = new char[4];  // sorted, while cardinality <= ARRAY_LIMIT
+        long[] words;                 // one bit per value once fuller; values is then null
+        int cardinality;
+
+        boolean add(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) != 0) {
+                    return false;
+                }
+                words[low >>> 6] |= bit;
+                cardinality++;
+                return true;
+            }
+            int at = Arrays.binarySearch(values, 0, cardinality, low);
+            if (at >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                toBitmap();
+                return add(low);
+            }
+            at = -at - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_LIMIT));
+            }
+            System.arraycopy(values, at, values, at + 1, cardinality - at);
+            values[at] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) == 0) {
+                    return false;
+                }
+                words[low >>> 6] &= ~bit;
+                cardinality--;
+                if (cardinality <= ARRAY_LIMIT) {
+                    toArray();
+                }
+                return true;
+            }
+            int at = Arrays.binarySearch(values, 0, cardinality, low);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(values, at + 1, values, at, cardinality - at - 1);
+            cardinality--;
+            return true;
+        }
+
+        boolean contains(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        /** Lowest value that is low or higher, or -1. */
+        int next(int low) {
+            if (words != null) {
+                int word = low >>> 6;
+                long bits = words[word] & (-1L << low);
+                while (bits == 0) {
+                    if (++word == WORDS) {
+                        return -1;
+                    }
+                    bits = words[word];
+                }
+                return word << 6 | Long.numberOfTrailingZeros(bits);
+            }
+            int at = Arrays.binarySearch(values, 0, cardinality, (char) low);
+            if (at < 0) {
+                at = -at - 1;
+            }
+            return at < cardinality ? values[at] : -1;
+        }
+
+        Container copy() {
+            Container copy = new Container();
+            copy.cardinality = cardinality;
+            copy.values = values != null ? Arrays.copyOf(values, Math.max(cardinality, 4)) : null;
+            copy.words = words != null ? words.clone() : null;
+            return copy;
+        }
+
+        static Container and(Container a, Container b) {
+            if (a.words != null && b.words != null) {
+                Container result = new Container();
+                result.values = null;
+                result.words = new long[WORDS];
+                for (int i = 0; i < WORDS; i++) {
+                    result.words[i] = a.words[i] & b.words[i];
+                    result.cardinality += Long.bitCount(result.words[i]);
+                }
+                if (result.cardinality <= ARRAY_LIMIT) {
+                    result.toArray();
+                }
+                return result;
+            }
+            Container array = a.words == null ? a : b;
+            Container other = array == a ? b : a;
+            return filter(array, other, true);
+        }
+
+        static Container or(Container a, Container b) {
+            if (a.words == null && b.words == null && a.cardinality + b.cardinality <= ARRAY_LIMIT) {
+                Container result = new Container();
+                result.values = new char[Math.max(a.cardinality + b.cardinality, 4)];
+                int i = 0;
+                int j = 0;
+                while (i < a.cardinality || j < b.cardinality) {
+                    char next;
+                    if (j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) {
+                        next = a.values[i++];
+                    } else if (i == a.cardinality || a.values[i] > b.values[j]) {
+                        next = b.values[j++];
+                    } else {
+                        next = a.values[i++];
+                        j++;
+                    }
+                    result.values[result.cardinality++] = next;
+                }
+                return result;
+            }
+            Container result = a.copy();
+            result.toBitmap();
+            if (b.words != null) {
+                for (int i = 0; i < WORDS; i++) {
+                    result.words[i] |= b.words[i];
+                }
+            } else {
+                for (int i = 0; i < b.cardinality; i++) {
+                    result.words[b.values[i] >>> 6] |= 1L << b.values[i];
+                }
+            }
+            result.recount();
+            return result;
+        }
+
+        static Container andNot(Container a, Container b) {
+            if (a.words == null) {
+                return filter(a, b, false);
+            }
+            Container result = a.copy();
+            if (b.words != null) {
+                for (int i = 0; i < WORDS; i++) {
+                    result.words[i] &= ~b.words[i];
+                }
+            } else {
+                for (int i = 0; i < b.cardinality; i++) {
+                    result.words[b.values[i] >>> 6] &= ~(1L << b.values[i]);
+                }
+            }
+            result.recount();
+            return result;
+        }
+
+        /** The values of an array container that are (keep) or are not (!keep) in the other container. */
+        private static Container filter(Container array, Container other, boolean keep) {
+            Container result = new Container();
+            result.values = new char[Math.max(array.cardinality, 4)];
+            for (int i = 0; i < array.cardinality; i++) {
+                if (other.contains(array.values[i]) == keep) {
+                    result.values[result.cardinality++] = array.values[i];
+                }
+            }
+            return result;
+        }
+
+        private void recount() {
+            cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality <= ARRAY_LIMIT) {
+                toArray();
+            }
+        }
+
+        private void toBitmap() {
+            if (words != null) {
+                return;
+            }
+            words = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            values = new char[Math.max(cardinality, 4)];
+            int at = 0;
+            for (int word = 0; word < WORDS; word++) {
+                for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                    values[at++] = (char) (word << 6 | Long.numberOfTrailingZeros(bits));
+                }
+            }
+            words = null;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *
+ * This is the registry of storage operation metrics, with JMX and a periodic log line
+ *
+ * */
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Hands out one OperationMetrics per component and operation, shared by every instance of the
+ * component (all EmployeeDAOs count towards "EmployeeDAO.read"), and registers each with the
+ * platform MBean server as employee:type=StorageMetrics,component=...,operation=....
+ *
+ * startLogging() adds a line to standard output every period with the operations that ran
+ * during it: how many, how many failed, and their p50, p99, p99.9 and maximum latency.
+ */
+public class StorageMetrics {
+    public static final String READ = "read";
+    public static final String ADD = "add";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+    public static final String SEARCH_BY_ID = "searchById";
+    public static final String SEARCH_BY_SURNAME = "searchBySurname";
+    public static final String FUZZY_SEARCH_BY_SURNAME = "fuzzySearchBySurname";
+    public static final String PPS_CHECK = "ppsCheck";
+    // Startup milestones, each recorded once with the time since startup began
+    public static final String WINDOW_SHOWN = "windowShown";
+    public static final String FIRST_EMPLOYEE_SHOWN = "firstEmployeeShown";
+    public static final String ALL_EMPLOYEES_LOADED = "allEmployeesLoaded";
+
+    private static final String LOG_PERIOD_PROPERTY = "employee.metrics.logSeconds";
+    private static final long DEFAULT_LOG_SECONDS = 60;
+
+    private static final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService logger;  // guarded by StorageMetrics.class
+
+    private StorageMetrics() {
+    }
+
+    /** The metrics of an operation of a component, created and registered with JMX on first use. */
+    public static OperationMetrics operation(String component, String operation) {
+        return operations.computeIfAbsent(component + "." + operation, name -> {
+            OperationMetrics metrics = new OperationMetrics(name);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(
+                        "employee:type=StorageMetrics,component=" + component + ",operation=" + operation));
+            } catch (JMException e) {
+                e.printStackTrace();  // still counted and logged, just not visible over JMX
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * Log every employee.metrics.logSeconds seconds (60 unless set; 0 turns logging off).
+     * Calling it again has no further effect.
+     */
+    public static void startLogging() {
+        startLogging(Long.getLong(LOG_PERIOD_PROPERTY, DEFAULT_LOG_SECONDS));
+    }
+
+    /** Log every given number of seconds; does nothing if seconds is 0 or logging has started. */
+    public static synchronized void startLogging(long seconds) {
+        if (seconds <= 0 || logger != null) {
+            return;
+        }
+        logger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "storage-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, long[]> previous = new HashMap<>();  // used only by the logging thread
+        logger.scheduleAtFixedRate(() -> {
+            String line = logLine(seconds, previous);
+            if (line != null) {
+                System.out.println(line);
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    // One line covering what each operation did since the previous line, or null if nothing ran
+    private static String logLine(long seconds, Map<String, long[]> previous) {
+        StringBuilder line = new StringBuilder("storage metrics, last ").append(seconds).append(" s:");
+        boolean any = false;
+        for (OperationMetrics metrics : new TreeMap<>(operations).values()) {
+            long[] now = metrics.latencySnapshot();
+            long errors = metrics.getErrors();
+            long[] before = previous.put(metrics.getName(), append(now, errors));
+            long[] interval = now.clone();
+            long count = 0;
+            for (int i = 0; i < interval.length; i++) {
+                interval[i] -= before != null ? before[i] : 0;
+                count += interval[i];
+            }
+            if (count <= 0) {
+                continue;  // idle, or reset since the last line
+            }
+            any = true;
+            line.append(' ').append(metrics.getName())
+                    .append(" n=").append(count)
+                    .append(" err=").append(errors - (before != null ? before[before.length - 1] : 0))
+                    .append(" p50=").append(duration(LatencyHistogram.percentile(interval, 50)))
+                    .append(" p99=").append(duration(LatencyHistogram.percentile(interval, 99)))
+                    .append(" p99.9=").append(duration(LatencyHistogram.percentile(interval, 99.9)))
+                    .append(" max=").append(duration(LatencyHistogram.percentile(interval, 100)))
+                    .append(';');
+        }
+        return any ? line.substring(0, line.length() - 1) : null;
+    }
+
+    // The bucket counts with the error count after them
+    private static long[] append(long[] counts, long errors) {
+        long[] copy = Arrays.copyOf(counts, counts.length + 1);
+        copy[counts.length] = errors;
+        return copy;
+    }
+
+    // Nanoseconds in the most readable unit, e.g. 850ns, 12.5us, 3.2ms, 1.10s
+    static String duration(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        } else if (nanos < 1_000_000) {
+            return String.format("%.1fus", nanos / 1e3);
+        } else if (nanos < 1_000_000_000) {
+            return String.format("%.1fms", nanos / 1e6);
+        }
+        return String.format("%.2fs", nanos / 1e9);
+    }
+}
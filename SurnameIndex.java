@@ -0,0 +1,168 @@
+/*
+ *
+ * This is a sorted secondary index on employee surnames
+ *
+ * */
+
+import java.util.Arrays;
+
+/**
+ * Sorted array of (normalized surname, position) pairs. A position is whatever the owner uses
+ * to find the record again: a byte offset in the record file or a slot in an in-memory list.
+ * Exact, prefix and range lookups are a binary search followed by a walk over the matches;
+ * entries with equal surnames are kept in position order.
+ */
+public class SurnameIndex {
+    private String[] keys = new String[16];
+    private long[] positions = new long[16];
+    private int size;
+
+    /** Normalize a surname the way it is indexed and compared: trimmed and upper case. */
+    public static String normalize(String surname) {
+        return surname == null ? "" : surname.trim().toUpperCase();
+    }
+
+    /** Number of indexed entries. */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Remove every entry. */
+    public synchronized void clear() {
+        size = 0;
+        Arrays.fill(keys, null);
+    }
+
+    /** Index the surname stored at the given position. Blank surnames are not indexed. */
+    public synchronized void add(String surname, long position) {
+        String key = normalize(surname);
+        if (key.isEmpty()) {
+            return;
+        }
+        int at = lowerBound(key, position);
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(positions, at, positions, at + 1, size - at);
+        keys[at] = key;
+        positions[at] = position;
+        size++;
+    }
+
+    /** Index many surnames at once with one sort and one merge instead of an insert per entry. */
+    public synchronized void addAll(String[] surnames, long[] newPositions, int count) {
+        Integer[] order = new Integer[count];
+        String[] newKeys = new String[count];
+        int added = 0;
+        for (int i = 0; i < count; i++) {
+            newKeys[i] = normalize(surnames[i]);
+            if (!newKeys[i].isEmpty()) {
+                order[added++] = i;
+            }
+        }
+        Arrays.sort(order, 0, added, (a, b) -> {
+            int cmp = newKeys[a].compareTo(newKeys[b]);
+            return cmp != 0 ? cmp : Long.compare(newPositions[a], newPositions[b]);
+        });
+
+        String[] mergedKeys = new String[Math.max(16, size + added)];
+        long[] mergedPositions = new long[mergedKeys.length];
+        int old = 0;
+        int next = 0;
+        for (int at = 0; at < size + added; at++) {
+            boolean takeNew = old == size || (next < added && compare(newKeys[order[next]], newPositions[order[next]],
+                    keys[old], positions[old]) < 0);
+            if (takeNew) {
+                mergedKeys[at] = newKeys[order[next]];
+                mergedPositions[at] = newPositions[order[next++]];
+            } else {
+                mergedKeys[at] = keys[old];
+                mergedPositions[at] = positions[old++];
+            }
+        }
+        keys = mergedKeys;
+        positions = mergedPositions;
+        size += added;
+    }
+
+    /** Remove the entry for the surname at the given position, if present. */
+    public synchronized void remove(String surname, long position) {
+        String key = normalize(surname);
+        int at = lowerBound(key, position);
+        if (at < size && keys[at].equals(key) && positions[at] == position) {
+            System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+            System.arraycopy(positions, at + 1, positions, at, size - at - 1);
+            keys[--size] = null;
+        }
+    }
+
+    /** Positions of all records whose surname equals the given one, ignoring case. */
+    public synchronized long[] exact(String surname) {
+        String key = normalize(surname);
+        int from = lowerBound(key, Long.MIN_VALUE);
+        int to = from;
+        while (to < size && keys[to].equals(key)) {
+            to++;
+        }
+        return Arrays.copyOfRange(positions, from, to);
+    }
+
+    /** Positions of all records whose surname starts with the given prefix, ignoring case. */
+    public synchronized long[] prefix(String prefix) {
+        String key = normalize(prefix);
+        int from = lowerBound(key, Long.MIN_VALUE);
+        int to = from;
+        while (to < size && keys[to].startsWith(key)) {
+            to++;
+        }
+        return Arrays.copyOfRange(positions, from, to);
+    }
+
+    /** Number of records whose surname equals the given one, found by binary search alone. */
+    public synchronized int count(String surname) {
+        String key = normalize(surname);
+        return lowerBound(key, Long.MAX_VALUE) - lowerBound(key, Long.MIN_VALUE);
+    }
+
+    /** Number of records whose surname starts with the given prefix, found by binary search alone. */
+    public synchronized int countPrefix(String prefix) {
+        String key = normalize(prefix);
+        // Every key starting with the prefix sorts below the prefix followed by the highest char
+        return lowerBound(key + Character.MAX_VALUE, Long.MIN_VALUE) - lowerBound(key, Long.MIN_VALUE);
+    }
+
+    /** Positions of every indexed record, in surname order. */
+    public synchronized long[] all() {
+        return Arrays.copyOf(positions, size);
+    }
+
+    /** Positions of all records with from &lt;= surname &lt; to, ignoring case, in surname order. */
+    public synchronized long[] range(String from, String to) {
+        int start = lowerBound(normalize(from), Long.MIN_VALUE);
+        int end = lowerBound(normalize(to), Long.MIN_VALUE);
+        return end > start ? Arrays.copyOfRange(positions, start, end) : new long[0];
+    }
+
+    private static int compare(String key, long position, String otherKey, long otherPosition) {
+        int cmp = key.compareTo(otherKey);
+        return cmp != 0 ? cmp : Long.compare(position, otherPosition);
+    }
+
+    // First index whose (key, position) is not less than the given pair
+    private int lowerBound(String key, long position) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = keys[mid].compareTo(key);
+            if (cmp < 0 || (cmp == 0 && positions[mid] < position)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -1,6 +1,7 @@
+import java.util.ArrayList;
 import java.util.List;
 
-public class SurnameSearchStrategy implements SearchStrategy {
+public class SurnameSearchStrategy implements SearchStrategy, MultiSearchStrategy {
     @Override
     public Employee search(String query, List<Employee> employees) {
         if (query == null || query.trim().isEmpty()) {
@@ -17,4 +18,19 @@ public class SurnameSearchStrategy implements SearchStrategy {
         }
         return null;
     }
+
+    @Override
+    public List<Employee> searchAll(String query, List<Employee> employees) {
+        List<Employee> matches = new ArrayList<>();
+        if (query == null || query.trim().isEmpty()) {
+            return matches;
+        }
+        String targetSurname = query.trim().toLowerCase();
+        for (Employee emp : employees) {
+            if (emp != null && emp.getSurname() != null && emp.getSurname().toLowerCase().equals(targetSurname)) {
+                matches.add(emp);
+            }
+        }
+        return matches;
+    }
 }
@@ -1,5 +1,10 @@
 public class ValidationUtil {
 
+    /** Validates that the given string is a valid employee ID (any positive int). */
+    public static boolean isValidId(String idStr) {
+        return isValidId(idStr, Integer.MAX_VALUE);
+    }
+
     /** Validates that the given string is a valid employee ID (numeric between 1 and maxRecords). */
     public static boolean isValidId(String idStr, int maxRecords) {
         if (idStr == null || idStr.trim().isEmpty()) return false;
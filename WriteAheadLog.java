@@ -0,0 +1,266 @@
+/*
+ *
+ * This is the write-ahead log for employee record writes
+ *
+ * */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Log of whole record images kept next to the employee file ("employees.dat" gets
+ * "employees.dat.wal"). Each entry is a CRC32, its lsn, the record position and the encoded
+ * record. The lsn of an entry is the one before it plus ENTRY_SIZE.
+ *
+ * A mutation appends its entry and waits in awaitDurable(); one waiting thread forces the log
+ * for every entry appended so far, so concurrent mutations share a single force (group commit).
+ * Records are not written in place until a checkpoint, which runs in the background: it copies
+ * the newest image of every pending position into the employee file, forces the file and then
+ * empties the log. Until then overlay() supplies the pending image to readers.
+ *
+ * Because the employee file is only written from images that are already durable in the log,
+ * a crash can never leave a torn record behind. open() replays every complete entry into the
+ * employee file and ignores a torn tail. A checkpoint empties the log without forcing it, so
+ * after a crash the log may still hold entries from before the checkpoint behind the newer
+ * ones; replay stops at the first entry whose lsn does not follow on from the one before it.
+ */
+public class WriteAheadLog implements Closeable {
+    public static final int ENTRY_SIZE = 4 + 8 + 8 + EmployeeRecordCodec.SIZE;  // crc + lsn + position + record
+    private static final int LSN_AT = 4;
+    private static final int POSITION_AT = 12;
+    private static final int IMAGE_AT = 20;
+    private static final int REPLAY_BATCH = 256;  // entries read per call during recovery
+    private static final long CHECKPOINT_MILLIS = 1000;
+    private static final int CHECKPOINT_RECORDS = 4096;  // pending positions that trigger an early checkpoint
+
+    private final FileChannel data;
+    private final FileChannel logChannel;
+    private final Map<Long, ByteBuffer> pending = new ConcurrentHashMap<>();  // position -> newest record image
+    private final int recovered;
+
+    // Appends and checkpoints hold appendLock; lsn values count log bytes since the log was opened
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private long logBase;  // lsn of the first byte in the log file
+    private volatile long appendedLsn;
+
+    // Group commit: one thread forces the log while the others wait for it
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition forced = commitLock.newCondition();
+    private boolean forcing;
+    private long durableLsn;
+
+    private ScheduledExecutorService checkpointer;
+    private Runnable checkpointTask;
+    private final AtomicBoolean earlyCheckpointQueued = new AtomicBoolean();
+
+    private WriteAheadLog(FileChannel data, FileChannel logChannel, int recovered) {
+        this.data = data;
+        this.logChannel = logChannel;
+        this.recovered = recovered;
+    }
+
+    /** Open the log for the given employee file, replaying anything left by a crash into data. */
+    public static WriteAheadLog open(Path dataPath, FileChannel data) throws IOException {
+        Path logPath = dataPath.resolveSibling(dataPath.getFileName() + ".wal");
+        FileChannel logChannel = FileChannel.open(logPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int recovered = replay(logChannel, data);
+        if (recovered > 0) {
+            data.force(true);
+        }
+        logChannel.truncate(0);
+        logChannel.force(true);
+        return new WriteAheadLog(data, logChannel, recovered);
+    }
+
+    /** Number of records replayed into the employee file when the log was opened. */
+    public int recovered() {
+        return recovered;
+    }
+
+    /** Number of positions waiting for the next checkpoint. */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Run the given checkpoint in the background every second, and sooner when many records are
+     * pending. The task must call checkpoint() once it holds whatever locks its readers use.
+     */
+    public void startCheckpoints(Runnable task) {
+        checkpointTask = task;
+        checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "wal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(task, CHECKPOINT_MILLIS, CHECKPOINT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Log the new image of the record at the given position and return the lsn to wait for. */
+    public long append(long position, Employee employee) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        entry.position(POSITION_AT);
+        entry.putLong(position);
+        EmployeeRecordCodec.encode(employee, entry);
+        CRC32 crc = new CRC32();
+
+        long lsn;
+        appendLock.lock();
+        try {
+            long at = appendedLsn - logBase;
+            // The lsn is only known under the lock, so the checksum is taken here
+            entry.putLong(LSN_AT, appendedLsn + ENTRY_SIZE);
+            crc.update(entry.array(), LSN_AT, ENTRY_SIZE - LSN_AT);
+            entry.putInt(0, (int) crc.getValue());
+            entry.clear();
+            while (entry.hasRemaining()) {
+                logChannel.write(entry, at + entry.position());
+            }
+            pending.put(position, ByteBuffer.wrap(entry.array(), IMAGE_AT, EmployeeRecordCodec.SIZE).slice());
+            lsn = appendedLsn + ENTRY_SIZE;
+            appendedLsn = lsn;
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (pending.size() >= CHECKPOINT_RECORDS && checkpointer != null
+                && earlyCheckpointQueued.compareAndSet(false, true)) {
+            checkpointer.execute(() -> {
+                earlyCheckpointQueued.set(false);
+                checkpointTask.run();
+            });
+        }
+        return lsn;
+    }
+
+    /** Block until the entry with the given lsn is on disk, forcing the log if no one else is. */
+    public void awaitDurable(long lsn) throws IOException {
+        commitLock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (forcing) {
+                    forced.awaitUninterruptibly();
+                    continue;
+                }
+                // Become the leader: everything appended so far goes out with this force
+                forcing = true;
+                long target = appendedLsn;
+                commitLock.unlock();
+                try {
+                    logChannel.force(false);
+                } finally {
+                    commitLock.lock();
+                    forcing = false;
+                    forced.signalAll();
+                }
+                durableLsn = Math.max(durableLsn, target);
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /** Decode the pending image of the record at the given position into record; false if there is none. */
+    public boolean overlay(long position, Employee record) {
+        ByteBuffer image = pending.get(position);
+        if (image == null) {
+            return false;
+        }
+        EmployeeRecordCodec.decode(image.duplicate(), record);
+        return true;
+    }
+
+    /** The pending record image at the given position (read it with absolute gets only), or null. */
+    public ByteBuffer pendingImage(long position) {
+        return pending.get(position);
+    }
+
+    /**
+     * Write every pending image into the employee file, force it and empty the log.
+     * Callers must keep readers that use overlay() out while this runs.
+     */
+    public void checkpoint() throws IOException {
+        appendLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            awaitDurable(appendedLsn);
+            for (Map.Entry<Long, ByteBuffer> image : new TreeMap<>(pending).entrySet()) {
+                ByteBuffer record = image.getValue().duplicate();
+                while (record.hasRemaining()) {
+                    data.write(record, image.getKey() + record.position());
+                }
+            }
+            data.force(false);
+            logChannel.truncate(0);
+            logBase = appendedLsn;
+            pending.clear();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** Checkpoint and close the log; the employee file is left open. */
+    @Override
+    public void close() throws IOException {
+        if (checkpointer != null) {
+            checkpointer.shutdownNow();
+        }
+        checkpoint();
+        logChannel.close();
+    }
+
+    // Copy every complete entry with a valid checksum into data, stopping at a torn tail or at
+    // an entry whose lsn does not follow on from the one before (left over from before a checkpoint)
+    private static int replay(FileChannel logChannel, FileChannel data) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(REPLAY_BATCH * ENTRY_SIZE);
+        CRC32 crc = new CRC32();
+        long logPosition = 0;
+        long lastLsn = -1;
+        int records = 0;
+        while (true) {
+            block.clear();
+            while (block.hasRemaining()) {
+                if (logChannel.read(block, logPosition + block.position()) < 0) {
+                    break;
+                }
+            }
+            block.flip();
+            if (block.remaining() < ENTRY_SIZE) {
+                return records;
+            }
+            for (int at = 0; at + ENTRY_SIZE <= block.limit(); at += ENTRY_SIZE) {
+                crc.reset();
+                crc.update(block.array(), at + LSN_AT, ENTRY_SIZE - LSN_AT);
+                long lsn = block.getLong(at + LSN_AT);
+                if (block.getInt(at) != (int) crc.getValue() || (lastLsn >= 0 && lsn != lastLsn + ENTRY_SIZE)) {
+                    return records;
+                }
+                lastLsn = lsn;
+                ByteBuffer image = ByteBuffer.wrap(block.array(), at + IMAGE_AT, EmployeeRecordCodec.SIZE).slice();
+                long position = block.getLong(at + POSITION_AT);
+                while (image.hasRemaining()) {
+                    data.write(image, position + image.position());
+                }
+                records++;
+                logPosition += ENTRY_SIZE;
+            }
+        }
+    }
+}
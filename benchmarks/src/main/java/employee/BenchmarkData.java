@@ -0,0 +1,75 @@
+package employee;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic employees and employee files for the benchmarks. Employee i (from 1) is always
+ * the same, so a benchmark can compute the ID, PPS Number or surname of any record it wants to
+ * look up without holding the data. Surnames repeat every SURNAMES employees.
+ */
+final class BenchmarkData {
+    static final int SURNAMES = 5000;
+    private static final String[] DEPARTMENTS = {"Administration", "Production", "Transport", "Management"};
+    private static final int WRITE_BATCH = 4096;
+
+    private BenchmarkData() {
+    }
+
+    static Employee employee(int id) {
+        return new Employee(id, pps(id), surname(id), "First" + id, id % 2 == 0 ? 'M' : 'F',
+                DEPARTMENTS[id % DEPARTMENTS.length], 30_000 + id % 50_000, id % 3 != 0);
+    }
+
+    static String pps(int id) {
+        return String.format("%07d", id);
+    }
+
+    static String surname(int id) {
+        return "Surname" + id % SURNAMES;
+    }
+
+    /** Position of employee id's record in a file made by createFile. */
+    static long position(int id) {
+        return EmployeeFileFormat.FIRST_RECORD + (long) (id - 1) * EmployeeRecordCodec.SIZE;
+    }
+
+    /** Employees 1..records, as the controller and search strategies hold them. */
+    static List<Employee> employees(int records) {
+        List<Employee> employees = new ArrayList<>(records);
+        for (int id = 1; id <= records; id++) {
+            employees.add(employee(id));
+        }
+        return employees;
+    }
+
+    /** A new employee file in a scratch directory holding employees 1..records in order. */
+    static Path createFile(int records) throws IOException {
+        Path file = Files.createTempDirectory("employee-bench").resolve("employees.dat");
+        EmployeeRecordCodec codec = new EmployeeRecordCodec(WRITE_BATCH);
+        try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+            EmployeeFileFormat.prepare(out.getChannel());
+            List<Employee> batch = new ArrayList<>(WRITE_BATCH);
+            for (int first = 1; first <= records; first += WRITE_BATCH) {
+                batch.clear();
+                for (int id = first; id < first + WRITE_BATCH && id <= records; id++) {
+                    batch.add(employee(id));
+                }
+                codec.writeBatch(out.getChannel(), position(first), batch);
+            }
+        }
+        return file;
+    }
+
+    /** Delete a file made by createFile with the index, free list and log kept next to it. */
+    static void delete(Path file) throws IOException {
+        for (String suffix : new String[] {"", ".pps", ".free", ".wal"}) {
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + suffix));
+        }
+        Files.deleteIfExists(file.getParent());
+    }
+}
@@ -0,0 +1,100 @@
+package employee;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EmployeeDAO lookups for random employees. With indexed=true the DAO opens the file by name
+ * and keeps its PPS and surname indexes; with indexed=false it is given the open files and
+ * every lookup but readEmployee scans the file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class DaoBenchmark {
+    private static final int IDS = 4096;  // a power of two
+
+    @Param({"1000", "100000", "1000000"})
+    int records;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    private Path file;
+    private RandomAccessFile input;
+    private RandomAccessFile output;
+    private EmployeeDAO dao;
+    private final int[] ids = new int[IDS];
+    private final String[] idTexts = new String[IDS];
+    private final String[] ppsNumbers = new String[IDS];
+    private final String[] surnames = new String[IDS];
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkData.createFile(records);
+        if (indexed) {
+            dao = new EmployeeDAO(file.toString(), false);
+        } else {
+            input = new RandomAccessFile(file.toFile(), "r");
+            output = new RandomAccessFile(file.toFile(), "rw");
+            dao = new EmployeeDAO(input, output);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < IDS; i++) {
+            ids[i] = 1 + random.nextInt(records);
+            idTexts[i] = String.valueOf(ids[i]);
+            ppsNumbers[i] = BenchmarkData.pps(ids[i]);
+            surnames[i] = BenchmarkData.surname(ids[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (indexed) {
+            dao.close();
+        } else {
+            input.close();
+            output.close();
+        }
+        BenchmarkData.delete(file);
+    }
+
+    @Benchmark
+    public Employee readEmployee() {
+        return dao.readEmployee(BenchmarkData.position(ids[next++ & (IDS - 1)]));
+    }
+
+    @Benchmark
+    public Employee searchEmployeeById() {
+        return dao.searchEmployee(idTexts[next++ & (IDS - 1)], true);
+    }
+
+    @Benchmark
+    public Employee searchEmployeeBySurname() {
+        return dao.searchEmployee(surnames[next++ & (IDS - 1)], false);
+    }
+
+    @Benchmark
+    public boolean isPpsExist() {
+        return dao.isPpsExist(ppsNumbers[next++ & (IDS - 1)]);
+    }
+}
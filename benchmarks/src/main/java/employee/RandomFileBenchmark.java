@@ -0,0 +1,82 @@
+package employee;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RandomFile.isPpsExist as the record form calls it when a record is saved: the PPS Number
+ * belongs to the record being edited, so the lookup finds it and reports no clash (a clash
+ * would open a message dialog). With indexed=true the write file is open and the PPS index
+ * answers; otherwise the read file is scanned up to the record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RandomFileBenchmark {
+    private static final int IDS = 4096;  // a power of two
+
+    @Param({"1000", "100000", "1000000"})
+    int records;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    private Path file;
+    private RandomFile randomFile;
+    private final String[] ppsNumbers = new String[IDS];
+    private final long[] positions = new long[IDS];
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkData.createFile(records);
+        randomFile = new RandomFile();
+        if (indexed) {
+            randomFile.openWriteFile(file.toString());
+        }
+        randomFile.openReadFile(file.toString());
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < IDS; i++) {
+            int id = 1 + random.nextInt(records);
+            ppsNumbers[i] = BenchmarkData.pps(id);
+            positions[i] = BenchmarkData.position(id);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        randomFile.closeReadFile();
+        if (indexed) {
+            randomFile.closeWriteFile();
+        }
+        BenchmarkData.delete(file);
+    }
+
+    @Benchmark
+    public boolean isPpsExist() {
+        int i = next++ & (IDS - 1);
+        return randomFile.isPpsExist(ppsNumbers[i], positions[i]);
+    }
+
+    @Benchmark
+    public long getNext() {
+        return randomFile.getNext(positions[next++ & (IDS - 1)]);
+    }
+}
@@ -0,0 +1,88 @@
+package employee;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RandomAccessEmployeeRecord.read/write at random positions of the file, and decoding a record
+ * already in memory. Positions are drawn up front so the random number generator is not timed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RecordBenchmark {
+    private static final int POSITIONS = 4096;  // a power of two
+
+    @Param({"1000", "100000", "1000000"})
+    int records;
+
+    private Path file;
+    private RandomAccessFile raf;
+    private final long[] positions = new long[POSITIONS];
+    private final RandomAccessEmployeeRecord[] updates = new RandomAccessEmployeeRecord[POSITIONS];
+    private final RandomAccessEmployeeRecord record = new RandomAccessEmployeeRecord();
+    private final ByteBuffer encoded = ByteBuffer.allocate(EmployeeRecordCodec.SIZE);
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkData.createFile(records);
+        raf = new RandomAccessFile(file.toFile(), "rw");
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < POSITIONS; i++) {
+            int id = 1 + random.nextInt(records);
+            Employee employee = BenchmarkData.employee(id);
+            positions[i] = BenchmarkData.position(id);
+            updates[i] = new RandomAccessEmployeeRecord(id, employee.getPps(), employee.getSurname(),
+                    employee.getFirstName(), employee.getGender(), employee.getDepartment(), employee.getSalary() + 1,
+                    employee.getFullTime());
+        }
+        EmployeeRecordCodec.encode(BenchmarkData.employee(1), encoded);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        raf.close();
+        BenchmarkData.delete(file);
+    }
+
+    @Benchmark
+    public RandomAccessEmployeeRecord read() throws IOException {
+        raf.seek(positions[next++ & (POSITIONS - 1)]);
+        record.read(raf);
+        return record;
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        int i = next++ & (POSITIONS - 1);
+        raf.seek(positions[i]);
+        updates[i].write(raf);
+    }
+
+    @Benchmark
+    public RandomAccessEmployeeRecord decode() {
+        encoded.rewind();
+        record.read(encoded);
+        return record;
+    }
+}
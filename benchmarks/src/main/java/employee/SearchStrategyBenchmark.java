@@ -0,0 +1,112 @@
+package employee;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The SearchStrategy implementations over the in-memory employee list the controller keeps:
+ * scanning for an ID against the ID directory, scanning for a surname against the sorted
+ * surname index, and the fuzzy search for the ten closest matches to a misspelt surname.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+@State(Scope.Thread)
+public class SearchStrategyBenchmark {
+    private static final int IDS = 4096;  // a power of two
+
+    @Param({"1000", "100000", "1000000"})
+    int records;
+
+    private List<Employee> employees;
+    private SearchStrategy idScan;
+    private SearchStrategy idDirectory;
+    private SurnameSearchStrategy surnameScan;
+    private IndexedSurnameSearchStrategy surnameIndexed;
+    private FuzzySurnameSearchStrategy surnameFuzzy;
+    private final String[] idTexts = new String[IDS];
+    private final String[] surnames = new String[IDS];
+    private final String[] misspelt = new String[IDS];  // surnames with a letter dropped
+    private int next;
+
+    @Setup
+    public void setUp() {
+        employees = BenchmarkData.employees(records);
+        Map<Integer, Integer> slotsById = new HashMap<>();
+        String[] allSurnames = new String[records];
+        long[] slots = new long[records];
+        for (int slot = 0; slot < records; slot++) {
+            slotsById.put(employees.get(slot).getId(), slot);
+            allSurnames[slot] = employees.get(slot).getSurname();
+            slots[slot] = slot;
+        }
+        SurnameIndex index = new SurnameIndex();
+        index.addAll(allSurnames, slots, records);
+        FuzzySurnameIndex fuzzyIndex = new FuzzySurnameIndex();
+        fuzzyIndex.addAll(allSurnames, records);
+
+        idScan = new IdSearchStrategy();
+        idDirectory = new IdSearchStrategy(slotsById);
+        surnameScan = new SurnameSearchStrategy();
+        surnameIndexed = new IndexedSurnameSearchStrategy(index, false);
+        surnameFuzzy = new FuzzySurnameSearchStrategy(fuzzyIndex, index, 10);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < IDS; i++) {
+            int id = 1 + random.nextInt(records);
+            idTexts[i] = String.valueOf(id);
+            surnames[i] = BenchmarkData.surname(id);
+            misspelt[i] = surnames[i].replaceFirst("a", "");
+        }
+    }
+
+    @Benchmark
+    public Employee idScan() {
+        return idScan.search(idTexts[next++ & (IDS - 1)], employees);
+    }
+
+    @Benchmark
+    public Employee idDirectory() {
+        return idDirectory.search(idTexts[next++ & (IDS - 1)], employees);
+    }
+
+    @Benchmark
+    public Employee surnameScan() {
+        return surnameScan.search(surnames[next++ & (IDS - 1)], employees);
+    }
+
+    @Benchmark
+    public Employee surnameIndexed() {
+        return surnameIndexed.search(surnames[next++ & (IDS - 1)], employees);
+    }
+
+    @Benchmark
+    public List<Employee> allBySurnameScan() {
+        return surnameScan.searchAll(surnames[next++ & (IDS - 1)], employees);
+    }
+
+    @Benchmark
+    public List<Employee> allBySurnameIndexed() {
+        return surnameIndexed.searchAll(surnames[next++ & (IDS - 1)], employees);
+    }
+
+    @Benchmark
+    public List<Employee> allBySurnameFuzzy() {
+        return surnameFuzzy.searchAll(misspelt[next++ & (IDS - 1)], employees);
+    }
+}